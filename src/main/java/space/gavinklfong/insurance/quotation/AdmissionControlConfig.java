@@ -0,0 +1,41 @@
+package space.gavinklfong.insurance.quotation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import space.gavinklfong.insurance.quotation.controllers.AdaptiveConcurrencyLimiter;
+import space.gavinklfong.insurance.quotation.controllers.AdmissionControlFilter;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+	@Bean
+	public AdaptiveConcurrencyLimiter quotationConcurrencyLimiter(@Value("${app.admission.initialLimit:20}") int initialLimit,
+																  @Value("${app.admission.minLimit:4}") int minLimit,
+																  @Value("${app.admission.maxLimit:200}") int maxLimit,
+																  @Value("${app.admission.latencyThreshold:2000}") long latencyThresholdInMillis,
+																  @Value("${app.admission.backoffRatio:0.9}") double backoffRatio,
+																  @Value("${app.admission.readHeadroom:10}") int readHeadroom,
+																  MeterRegistry meterRegistry) {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+				latencyThresholdInMillis, backoffRatio, readHeadroom);
+		Gauge.builder("quotation.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+		Gauge.builder("quotation.admission.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+		return limiter;
+	}
+
+	@Bean
+	public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AdaptiveConcurrencyLimiter limiter,
+																				 @Value("${app.admission.retryAfter:1}") long retryAfterInSeconds,
+																				 MeterRegistry meterRegistry) {
+		FilterRegistrationBean<AdmissionControlFilter> registration =
+				new FilterRegistrationBean<>(new AdmissionControlFilter(limiter, retryAfterInSeconds, meterRegistry));
+		registration.addUrlPatterns("/quotations/*");
+		return registration;
+	}
+}
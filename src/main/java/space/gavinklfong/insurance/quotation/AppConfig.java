@@ -1,11 +1,21 @@
 package space.gavinklfong.insurance.quotation;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.annotation.EnableRetry;
+import space.gavinklfong.insurance.quotation.rules.QuotationRuleProperties;
+
+import java.time.Clock;
 
 @EnableRetry
-@Configuration
+@EnableConfigurationProperties(QuotationRuleProperties.class)
+@Configuration(proxyBeanMethods = false)
 public class AppConfig {
 
-}
+	@Bean
+	public Clock clock() {
+		return Clock.systemDefaultZone();
+	}
 
+}
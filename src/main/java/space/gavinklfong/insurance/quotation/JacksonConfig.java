@@ -0,0 +1,51 @@
+package space.gavinklfong.insurance.quotation;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Jackson set up shared by the REST API, the error handlers and the downstream clients.
+ *
+ * Module beans are registered with the application's ObjectMapper by Spring Boot, which also
+ * configures the JSON codecs of the WebClient.Builder with it. Clients may ask for Smile, a binary
+ * JSON encoding, with Accept: application/x-jackson-smile.
+ */
+@Configuration(proxyBeanMethods = false)
+public class JacksonConfig implements WebMvcConfigurer {
+
+	private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+	public JacksonConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		this.objectMapperBuilder = objectMapperBuilder;
+	}
+
+	// generated bytecode accessors instead of reflection for bean properties
+	@Bean
+	public static Module afterburnerModule() {
+		return new AfterburnerModule();
+	}
+
+	// Smile responses of the downstream services are read with the same modules as JSON ones
+	@Bean
+	public WebClientCustomizer smileCodecCustomizer() {
+		return webClientBuilder -> webClientBuilder.codecs(codecs -> codecs.defaultCodecs()
+				.jackson2SmileDecoder(new Jackson2SmileDecoder(objectMapperBuilder.factory(new SmileFactory()).build())));
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		// the builder is a prototype, this does not change the application's JSON ObjectMapper
+		converters.add(new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build()));
+	}
+}
@@ -0,0 +1,39 @@
+package space.gavinklfong.insurance.quotation;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import space.gavinklfong.insurance.quotation.apiclients.CustomerSrvClient;
+import space.gavinklfong.insurance.quotation.apiclients.ProductSrvClient;
+import space.gavinklfong.insurance.quotation.apiclients.QuotationEngineClient;
+import space.gavinklfong.insurance.quotation.controllers.QuotationRestController;
+import space.gavinklfong.insurance.quotation.repositories.QuotationStore;
+import space.gavinklfong.insurance.quotation.rules.QuotationRuleEngine;
+import space.gavinklfong.insurance.quotation.services.QuotationIndex;
+import space.gavinklfong.insurance.quotation.services.QuotationService;
+
+/**
+ * Start up behaviour, see the startup profile (application-startup.yml).
+ */
+@Configuration(proxyBeanMethods = false)
+public class StartupConfig {
+
+	// the request path is created at start up even with lazy initialization, the first request must not pay for it
+	@Bean
+	static LazyInitializationExcludeFilter hotPathLazyInitializationExcludeFilter() {
+		return LazyInitializationExcludeFilter.forBeanTypes(QuotationRestController.class, QuotationService.class,
+				QuotationRuleEngine.class, QuotationIndex.class, QuotationStore.class,
+				CustomerSrvClient.class, ProductSrvClient.class, QuotationEngineClient.class);
+	}
+
+	// used by the cds build profile to record the classes loaded by a complete start up
+	@Bean
+	@ConditionalOnProperty(name = "app.startup.exitAfterStart", havingValue = "true")
+	public ApplicationListener<ApplicationReadyEvent> exitAfterStart() {
+		return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+	}
+}
@@ -0,0 +1,183 @@
+package space.gavinklfong.insurance.quotation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import space.gavinklfong.insurance.quotation.apiclients.CustomerSrvClient;
+import space.gavinklfong.insurance.quotation.apiclients.ProductSrvClient;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.QuotationCriteriaNotFulfilledException;
+import space.gavinklfong.insurance.quotation.models.Customer;
+import space.gavinklfong.insurance.quotation.models.Product;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.services.QuotationService;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Initializes and warms up what the first requests would otherwise pay for, before the application is ready.
+ *
+ * Application runners complete before the readiness state turns to ACCEPTING_TRAFFIC, so the
+ * readiness probe stays down until the warmup is done. The warmup
+ * - initializes the event loops and DNS resolver shared by the downstream WebClients
+ * - initializes the Jackson serializers and deserializers of the API types
+ * - runs the quotation pipeline (customer and product lookup over HTTP, eligibility, pricing,
+ *   response serialization) for the configured number of iterations against in-process
+ *   stand-ins of the customer and product services, so that the JIT compiles it before real
+ *   traffic arrives. Eligibility and pricing are those of {@link QuotationService}, the
+ *   lookups go through clients of the stand-ins, which are disposed afterwards. Nothing is
+ *   saved and, unless the quotation engine is enabled, no downstream service is called.
+ *
+ * The connection pools of the customer and product service clients open their connections on
+ * the first real lookups.
+ */
+@Slf4j
+@Component
+public class StartupWarmup implements ApplicationRunner {
+
+	private static final Duration HTTP_WARMUP_TIMEOUT = Duration.ofSeconds(5);
+
+	private static final int REPORTED_ITERATIONS = 100;
+
+	private static final String WARMUP_PRODUCT_CODE = "WARMUP-01";
+
+	private final ObjectMapper objectMapper;
+
+	private final WebClient.Builder webClientBuilder;
+
+	private final QuotationService quotationService;
+
+	private final Clock clock;
+
+	private final boolean enabled;
+
+	private final int iterations;
+
+	public StartupWarmup(ObjectMapper objectMapper, WebClient.Builder webClientBuilder, QuotationService quotationService, Clock clock,
+						 @Value("${app.startup.warmup.enabled:true}") boolean enabled,
+						 @Value("${app.startup.warmup.iterations:1000}") int iterations) {
+		this.objectMapper = objectMapper;
+		this.webClientBuilder = webClientBuilder;
+		this.quotationService = quotationService;
+		this.clock = clock;
+		this.enabled = enabled;
+		this.iterations = iterations;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!enabled) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		try {
+			warmUpHttpClient();
+			warmUpJackson();
+			if (iterations > 0) {
+				warmUpPipeline();
+			}
+		} catch (IOException | QuotationCriteriaNotFulfilledException | RuntimeException e) {
+			log.warn("Start up warmup failed: {}", e.toString());
+		}
+		log.info("Start up warmup completed in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
+	}
+
+	// the WebClients use Reactor Netty's global resources, initialize them before the first downstream call
+	private void warmUpHttpClient() {
+		HttpClient.create().warmup().block(HTTP_WARMUP_TIMEOUT);
+	}
+
+	private void warmUpJackson() throws IOException {
+		objectMapper.readValue(objectMapper.writeValueAsBytes(syntheticRequest(1L)), QuotationReq.class);
+		objectMapper.readValue(objectMapper.writeValueAsBytes(Quotation.builder().quotationCode("warmup")
+				.customerId(1L).productCode(WARMUP_PRODUCT_CODE).amount(1500.0).expiryTime(LocalDateTime.now(clock)).build()), Quotation.class);
+		objectMapper.readValue(objectMapper.writeValueAsBytes(syntheticCustomer(1L)), Customer.class);
+		objectMapper.readValue(objectMapper.writeValueAsBytes(syntheticProduct()), Product.class);
+	}
+
+	void warmUpPipeline() throws IOException, QuotationCriteriaNotFulfilledException {
+		byte[] customer = objectMapper.writeValueAsBytes(syntheticCustomer(1L));
+		byte[] product = objectMapper.writeValueAsBytes(syntheticProduct());
+
+		DisposableServer standIn = HttpServer.create()
+				.host("localhost")
+				.port(0)
+				.route(routes -> routes
+						.get("/customers/{id}", (request, response) -> response
+								.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+								.sendByteArray(Mono.just(customer)))
+						.get("/products/{id}", (request, response) -> response
+								.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+								.sendByteArray(Mono.just(product))))
+				.bindNow(HTTP_WARMUP_TIMEOUT);
+		String standInUrl = "http://localhost:" + standIn.port();
+		// with the codecs of the real clients, so that it is their deserializers which get compiled
+		CustomerSrvClient customerSrvClient = new CustomerSrvClient(webClientBuilder, standInUrl);
+		ProductSrvClient productSrvClient = new ProductSrvClient(webClientBuilder, standInUrl);
+		try {
+			long firstNanos = 0;
+			long lastNanos = 0;
+			for (int i = 0; i < iterations; i++) {
+				long start = System.nanoTime();
+				quote(customerSrvClient, productSrvClient, syntheticRequest(i % 100L + 1));
+				long elapsed = System.nanoTime() - start;
+				if (i < REPORTED_ITERATIONS) {
+					firstNanos += elapsed;
+				}
+				if (i >= iterations - REPORTED_ITERATIONS) {
+					lastNanos += elapsed;
+				}
+			}
+
+			int reported = Math.min(REPORTED_ITERATIONS, iterations);
+			log.info("Quotation pipeline warmed up: iterations={}, first {} avg={} us, last {} avg={} us",
+					iterations, reported, firstNanos / reported / 1000, reported, lastNanos / reported / 1000);
+		} finally {
+			customerSrvClient.close();
+			productSrvClient.close();
+			standIn.disposeNow(HTTP_WARMUP_TIMEOUT);
+		}
+	}
+
+	private byte[] quote(CustomerSrvClient customerSrvClient, ProductSrvClient productSrvClient, QuotationReq request)
+			throws IOException, QuotationCriteriaNotFulfilledException {
+		Customer customer = customerSrvClient.getCustomer(request.getCustomerId()).orElseThrow();
+		Product product = productSrvClient.getProduct(request.getProductCode()).orElseThrow();
+		return objectMapper.writeValueAsBytes(quotationService.priceQuotation(request, customer, product));
+	}
+
+	private static QuotationReq syntheticRequest(Long customerId) {
+		return QuotationReq.builder().customerId(customerId).productCode(WARMUP_PRODUCT_CODE).postCode("SW20").build();
+	}
+
+	private static Customer syntheticCustomer(Long customerId) {
+		return Customer.builder().id(customerId).name("warmup").dob(LocalDate.of(1980, 1, 1)).build();
+	}
+
+	private static Product syntheticProduct() {
+		return Product.builder()
+				.productCode(WARMUP_PRODUCT_CODE)
+				.productPlan("Warmup")
+				.productClass("Online")
+				.postCodesInService(new String[] {"SW18", "SW19", "SW20", "SM1", "SM2"})
+				.listedPrice(1500.0)
+				.postCodesWithDiscount(new String[] {"SW20"})
+				.postCodeDiscountRate(0.1)
+				.build();
+	}
+}
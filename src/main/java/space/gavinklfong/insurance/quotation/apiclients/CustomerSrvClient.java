@@ -4,13 +4,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.resources.ConnectionProvider;
 import space.gavinklfong.insurance.quotation.models.Customer;
 
+import javax.annotation.PreDestroy;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,25 +21,57 @@ import java.util.Optional;
 @Component
 public class CustomerSrvClient {
 
+    private static final String SMILE_AND_JSON = "application/x-jackson-smile, application/json;q=0.9";
+
     private String customerSrvUrl;
 
     private WebClient webClient;
 
+    private final ConnectionProvider connectionProvider;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired(required = false)
+    private FaultInjector faultInjector;
+
+    /**
+     * @param webClientBuilder the builder configured by Spring Boot, whose codecs use the
+     *                         application's ObjectMapper
+     */
     @Autowired
-    public CustomerSrvClient(@Value("${app.customerSrvUrl}") String customerSrvUrl) {
+    public CustomerSrvClient(WebClient.Builder webClientBuilder,
+                             @Value("${app.customerSrvUrl}") String customerSrvUrl,
+                             @Value("${app.downstream.acceptSmile:false}") boolean acceptSmile,
+                             @Value("${app.downstream.protocols:HTTP11}") String protocols,
+                             @Value("${app.downstream.compress:true}") boolean compress,
+                             @Value("${app.downstream.maxConnections:16}") int maxConnections) {
         this.customerSrvUrl = customerSrvUrl;
-        this.webClient = WebClient.builder().baseUrl(customerSrvUrl)
-                .build();
+        this.connectionProvider = DownstreamConnector.connectionProvider("customer-srv", maxConnections);
+        // the builder is shared, configure a copy of it
+        WebClient.Builder builder = webClientBuilder.clone().baseUrl(customerSrvUrl)
+                .clientConnector(DownstreamConnector.create(connectionProvider, protocols, compress))
+                .filter((request, next) -> faultInjector == null ? next.exchange(request)
+                        : faultInjector.filter(FaultTarget.CUSTOMER_SRV).filter(request, next));
+        if (acceptSmile) {
+            // binary JSON if the service supports it
+            builder.defaultHeader(HttpHeaders.ACCEPT, SMILE_AND_JSON);
+        }
+        this.webClient = builder.build();
+    }
+
+    public CustomerSrvClient(String customerSrvUrl) {
+        this(WebClient.builder(), customerSrvUrl);
+    }
+
+    public CustomerSrvClient(WebClient.Builder webClientBuilder, String customerSrvUrl) {
+        this(webClientBuilder, customerSrvUrl, false, "HTTP11", true, 16);
     }
 
     public Optional<Customer> getCustomer(Long id)  {
 
-        WebClient webClient = WebClient.create(customerSrvUrl);
         Mono<Customer> customer = webClient.get()
-                .uri("/customers/" + id)
+                .uri("/customers/{id}", id)
                 .retrieve()
                 .onStatus(HttpStatus.NOT_FOUND::equals, clientResponse -> Mono.empty())
                 .bodyToMono(Customer.class);
@@ -46,7 +81,6 @@ public class CustomerSrvClient {
 
     public List<Customer> getCustomers()  {
 
-        WebClient webClient = WebClient.create(customerSrvUrl);
         Flux<Customer> customers = webClient.get()
                 .uri("/customers")
                 .retrieve()
@@ -56,4 +90,9 @@ public class CustomerSrvClient {
         return customers.collectList().block();
     }
 
+    // releases the connections of the pool
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
 }
@@ -0,0 +1,51 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reactor Netty connector of the customer and product service clients.
+ *
+ * With H2C concurrent lookups are multiplexed as streams over at most maxConnections HTTP/2
+ * connections, whereas with HTTP/1.1 each concurrent lookup takes a connection of its own.
+ * With compression the client accepts gzip and inflates the responses, which pays off for
+ * products with long post code lists.
+ */
+final class DownstreamConnector {
+
+    private DownstreamConnector() {
+    }
+
+    static ClientHttpConnector create(String name, String protocols, boolean compress, int maxConnections) {
+        return create(connectionProvider(name, maxConnections), protocols, compress);
+    }
+
+    /**
+     * @param protocols comma separated Reactor Netty protocols, e.g. HTTP11, H2C (prior knowledge)
+     *                  or H2C,HTTP11 (HTTP/1.1 upgrade)
+     */
+    static ClientHttpConnector create(ConnectionProvider connectionProvider, String protocols, boolean compress) {
+        HttpProtocol[] httpProtocols = Arrays.stream(protocols.split(","))
+                .map(protocol -> HttpProtocol.valueOf(protocol.trim().toUpperCase(Locale.ROOT)))
+                .toArray(HttpProtocol[]::new);
+
+        return new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                .protocol(httpProtocols)
+                .compress(compress));
+    }
+
+    // a named pool, to be disposed by its client
+    static ConnectionProvider connectionProvider(String name, int maxConnections) {
+        // callers wait for a connection rather than fail, their number is bounded by admission control
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Faults injected into the calls to a downstream target, rates are between 0 and 1.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Fault {
+
+    // added to every call
+    private long latencyMillis;
+    // share of calls failed as if the target answered 503
+    private double errorRate;
+    // share of calls failed as if the connection was reset
+    private double resetRate;
+    // delay of the response body after the headers, not applicable to the quotation store
+    private long slowBodyMillis;
+}
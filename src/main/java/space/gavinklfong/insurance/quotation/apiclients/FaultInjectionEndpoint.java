@@ -0,0 +1,81 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sets and clears the injected faults by target, e.g.
+ * POST /actuator/faults/customer-srv {"latencyMillis": 200, "errorRate": 0.1}
+ */
+@Component
+@Endpoint(id = "faults")
+@ConditionalOnProperty(name = "app.faults.enabled", havingValue = "true")
+public class FaultInjectionEndpoint {
+
+    private final FaultInjector faultInjector;
+
+    public FaultInjectionEndpoint(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    @ReadOperation
+    public Map<String, Fault> faults() {
+        Map<String, Fault> faults = new LinkedHashMap<>();
+        faultInjector.getFaults().forEach((target, fault) -> faults.put(target.getTag(), fault));
+        return faults;
+    }
+
+    @WriteOperation
+    public Map<String, Fault> setFault(@Selector String target, @Nullable Long latencyMillis, @Nullable Double errorRate,
+                                       @Nullable Double resetRate, @Nullable Long slowBodyMillis) {
+        Fault fault = Fault.builder()
+                .latencyMillis(latencyMillis == null ? 0 : latencyMillis)
+                .errorRate(rate(errorRate))
+                .resetRate(rate(resetRate))
+                .slowBodyMillis(slowBodyMillis == null ? 0 : slowBodyMillis)
+                .build();
+        faultInjector.setFault(target(target), fault);
+        return faults();
+    }
+
+    @DeleteOperation
+    public Map<String, Fault> clearFault(@Selector String target) {
+        faultInjector.clearFault(target(target));
+        return faults();
+    }
+
+    @DeleteOperation
+    public Map<String, Fault> clearFaults() {
+        faultInjector.clearFaults();
+        return faults();
+    }
+
+    private static FaultTarget target(String target) {
+        try {
+            return FaultTarget.ofTag(target);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    private static double rate(Double rate) {
+        if (rate == null) {
+            return 0;
+        }
+        if (rate < 0 || rate > 1) {
+            String message = "Fault rate must be between 0 and 1: " + rate;
+            throw new InvalidEndpointRequestException(message, message);
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,156 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in fault injection into the downstream calls, to measure the retry settings under failure.
+ *
+ * Faults are set per target at runtime through the faults actuator endpoint and are injected
+ * only if app.faults.enabled is set. They surface as the exceptions of real failures, so the
+ * retry policies treat them alike. With a seed the sequence of faults is repeatable for the
+ * same sequence of calls.
+ */
+@Slf4j
+@Component
+public class FaultInjector {
+
+    static final String FAULT_COUNTER = "downstream.faults";
+
+    private final Map<FaultTarget, Fault> faults = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+
+    private final Random random;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public FaultInjector(@Value("${app.faults.enabled:false}") boolean enabled,
+                         @Value("${app.faults.seed:0}") long seed,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.random = seed == 0 ? new Random() : new Random(seed);
+        this.meterRegistry = meterRegistry;
+        if (enabled) {
+            log.warn("Fault injection is enabled, downstream calls may fail on purpose");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setFault(FaultTarget target, Fault fault) {
+        if (!enabled) {
+            throw new IllegalStateException("Fault injection is not enabled");
+        }
+        faults.put(target, fault);
+        log.warn("Fault injected into {}: {}", target.getTag(), fault);
+    }
+
+    public void clearFault(FaultTarget target) {
+        faults.remove(target);
+    }
+
+    public void clearFaults() {
+        faults.clear();
+    }
+
+    public Map<FaultTarget, Fault> getFaults() {
+        Map<FaultTarget, Fault> copy = new EnumMap<>(FaultTarget.class);
+        copy.putAll(faults);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Injects the faults of the target into the exchanges of a WebClient.
+     */
+    public ExchangeFilterFunction filter(FaultTarget target) {
+        return (request, next) -> {
+            Fault fault = faults.get(target);
+            if (!enabled || fault == null) {
+                return next.exchange(request);
+            }
+
+            double roll = random.nextDouble();
+            Mono<ClientResponse> response;
+            if (roll < fault.getResetRate()) {
+                count(target, "reset");
+                response = Mono.error(new WebClientRequestException(new IOException("Connection reset by fault injection"),
+                        request.method(), request.url(), request.headers()));
+            } else if (roll < fault.getResetRate() + fault.getErrorRate()) {
+                count(target, "error");
+                response = Mono.error(WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        "Service Unavailable by fault injection", HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8));
+            } else if (fault.getSlowBodyMillis() > 0) {
+                count(target, "slowBody");
+                Duration delay = Duration.ofMillis(fault.getSlowBodyMillis());
+                response = next.exchange(request)
+                        .map(clientResponse -> clientResponse.mutate().body(body -> body.delaySubscription(delay)).build());
+            } else {
+                response = next.exchange(request);
+            }
+
+            if (fault.getLatencyMillis() > 0) {
+                count(target, "latency");
+                return Mono.delay(Duration.ofMillis(fault.getLatencyMillis())).then(response);
+            }
+            return response;
+        };
+    }
+
+    /**
+     * Injects the faults of the target into a blocking call, before the call is made.
+     */
+    public void inject(FaultTarget target) {
+        Fault fault = faults.get(target);
+        if (!enabled || fault == null) {
+            return;
+        }
+
+        if (fault.getLatencyMillis() > 0) {
+            count(target, "latency");
+            try {
+                Thread.sleep(fault.getLatencyMillis());
+            } catch (InterruptedException e) {
+                // e.g. the request was cancelled, the call is not made
+                Thread.currentThread().interrupt();
+                throw new TransientDataAccessResourceException("Interrupted by fault injection", e);
+            }
+        }
+
+        double roll = random.nextDouble();
+        if (roll < fault.getResetRate()) {
+            count(target, "reset");
+            throw new TransientDataAccessResourceException("Connection reset by fault injection");
+        } else if (roll < fault.getResetRate() + fault.getErrorRate()) {
+            count(target, "error");
+            throw new TransientDataAccessResourceException("Failure by fault injection");
+        }
+    }
+
+    private void count(FaultTarget target, String fault) {
+        meterRegistry.counter(FAULT_COUNTER, "target", target.getTag(), "fault", fault).increment();
+    }
+}
@@ -0,0 +1,26 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+public enum FaultTarget {
+    CUSTOMER_SRV("customer-srv"),
+    PRODUCT_SRV("product-srv"),
+    QUOTATION_STORE("quotation-store");
+
+    private final String tag;
+
+    FaultTarget(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public static FaultTarget ofTag(String tag) {
+        for (FaultTarget target : values()) {
+            if (target.tag.equals(tag)) {
+                return target;
+            }
+        }
+        throw new IllegalArgumentException("Unknown fault target: " + tag);
+    }
+}
@@ -0,0 +1,97 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.QuotationCacheNode;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Shared quotation cache node on a peer instance of this service.
+ *
+ * Reads wait at most the timeout and read failures as misses, writes are sent without waiting.
+ * After a failed read the peer is skipped for the retry interval, so that a slow or down peer
+ * does not hold up every read of its partition by the timeout. Requests carry the shared secret
+ * of the instances, and pushed quotations their signature with it (see {@link QuotationSigner}).
+ */
+@Slf4j
+public class PeerQuotationCacheClient implements QuotationCacheNode {
+
+    public static final String CACHE_URI = "/internal/quotation-cache/{id}";
+
+    public static final String SECRET_HEADER = "X-Quotation-Cache-Secret";
+
+    public static final String SIGNATURE_HEADER = "X-Quotation-Signature";
+
+    private final String id;
+
+    private final Duration timeout;
+
+    private final long retryIntervalNanos;
+
+    private final QuotationSigner signer;
+
+    private final WebClient webClient;
+
+    // System.nanoTime() before which the peer is skipped
+    private volatile long skipUntil;
+
+    private volatile boolean skipping;
+
+    public PeerQuotationCacheClient(String id, String peerUrl, String secret, Duration timeout, Duration retryInterval) {
+        this.id = id;
+        this.timeout = timeout;
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.signer = new QuotationSigner(secret);
+        this.webClient = WebClient.builder().baseUrl(peerUrl)
+                .clientConnector(DownstreamConnector.create("quotation-cache-" + id, "HTTP11", false, 16))
+                .defaultHeader(SECRET_HEADER, secret)
+                .build();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Optional<Quotation> get(String quotationCode) {
+        if (skipping && System.nanoTime() - skipUntil < 0) {
+            return Optional.empty();
+        }
+        return webClient.get()
+                .uri(CACHE_URI, quotationCode)
+                .retrieve()
+                .onStatus(HttpStatus.NOT_FOUND::equals, clientResponse -> Mono.empty())
+                .bodyToMono(Quotation.class)
+                .timeout(timeout)
+                .doOnSuccess(quotation -> skipping = false)
+                .onErrorResume(e -> {
+                    log.debug("Quotation cache node {} failed to get {}, skipped for a while: {}", id, quotationCode, e.toString());
+                    skipUntil = System.nanoTime() + retryIntervalNanos;
+                    skipping = true;
+                    return Mono.empty();
+                })
+                .blockOptional();
+    }
+
+    @Override
+    public void put(Quotation quotation) {
+        if (skipping && System.nanoTime() - skipUntil < 0) {
+            return;
+        }
+        webClient.put()
+                .uri(CACHE_URI, quotation.getQuotationCode())
+                .header(SIGNATURE_HEADER, signer.sign(quotation))
+                .bodyValue(quotation)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .subscribe(response -> { },
+                        e -> log.debug("Quotation cache node {} failed to put {}: {}", id, quotation.getQuotationCode(), e.toString()));
+    }
+}
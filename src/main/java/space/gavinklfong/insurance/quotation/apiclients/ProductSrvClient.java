@@ -3,37 +3,72 @@ package space.gavinklfong.insurance.quotation.apiclients;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.resources.ConnectionProvider;
 import space.gavinklfong.insurance.quotation.models.Product;
 
+import javax.annotation.PreDestroy;
 import java.util.List;
 import java.util.Optional;
 
 @Component
 public class ProductSrvClient {
 
+    private static final String SMILE_AND_JSON = "application/x-jackson-smile, application/json;q=0.9";
+
     private String productSrvUrl;
 
     private WebClient webClient;
 
+    private final ConnectionProvider connectionProvider;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired(required = false)
+    private FaultInjector faultInjector;
+
+    /**
+     * @param webClientBuilder the builder configured by Spring Boot, whose codecs use the
+     *                         application's ObjectMapper
+     */
     @Autowired
-    public ProductSrvClient(@Value("${app.productSrvUrl}") String productSrvUrl) {
+    public ProductSrvClient(WebClient.Builder webClientBuilder,
+                            @Value("${app.productSrvUrl}") String productSrvUrl,
+                            @Value("${app.downstream.acceptSmile:false}") boolean acceptSmile,
+                            @Value("${app.downstream.protocols:HTTP11}") String protocols,
+                            @Value("${app.downstream.compress:true}") boolean compress,
+                            @Value("${app.downstream.maxConnections:16}") int maxConnections) {
         this.productSrvUrl = productSrvUrl;
-        this.webClient = WebClient.builder().baseUrl(productSrvUrl)
-                .build();
+        this.connectionProvider = DownstreamConnector.connectionProvider("product-srv", maxConnections);
+        // the builder is shared, configure a copy of it
+        WebClient.Builder builder = webClientBuilder.clone().baseUrl(productSrvUrl)
+                .clientConnector(DownstreamConnector.create(connectionProvider, protocols, compress))
+                .filter((request, next) -> faultInjector == null ? next.exchange(request)
+                        : faultInjector.filter(FaultTarget.PRODUCT_SRV).filter(request, next));
+        if (acceptSmile) {
+            // binary JSON if the service supports it
+            builder.defaultHeader(HttpHeaders.ACCEPT, SMILE_AND_JSON);
+        }
+        this.webClient = builder.build();
+    }
+
+    public ProductSrvClient(String productSrvUrl) {
+        this(WebClient.builder(), productSrvUrl);
+    }
+
+    public ProductSrvClient(WebClient.Builder webClientBuilder, String productSrvUrl) {
+        this(webClientBuilder, productSrvUrl, false, "HTTP11", true, 16);
     }
 
     public Optional<Product> getProduct(String id) {
-        WebClient webClient = WebClient.create(productSrvUrl);
         Mono<Product> products = webClient.get()
-                .uri("/products/" + id)
+                .uri("/products/{id}", id)
                 .retrieve()
                 .onStatus(HttpStatus.NOT_FOUND::equals, clientResponse -> Mono.empty())
                 .bodyToMono(Product.class);
@@ -43,7 +78,6 @@ public class ProductSrvClient {
 
     public List<Product> getProducts()  {
 
-        WebClient webClient = WebClient.create(productSrvUrl);
         Flux<Product> products = webClient.get()
                 .uri("/products")
                 .retrieve()
@@ -52,4 +86,10 @@ public class ProductSrvClient {
 
         return products.collectList().block();
     }
+
+    // releases the connections of the pool
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
 }
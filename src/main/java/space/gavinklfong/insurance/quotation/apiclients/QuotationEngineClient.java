@@ -0,0 +1,201 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineRes;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Client of the external quotation engine.
+ *
+ * Concurrent price requests are collected into batches of up to batchSize requests, or whatever
+ * arrives within batchWindow, and sent as one call. Callers wait at most the configured timeout
+ * so that a slow engine never adds more than that to a quotation. Requests whose caller stopped
+ * waiting are left out of the batch, and beyond maxPending requests waiting for a batch a request
+ * is not queued at all, the caller prices locally instead.
+ */
+@Slf4j
+@Component
+public class QuotationEngineClient {
+
+    private static final String PRICES_URI = "/quotation-engine/prices";
+
+    private static final int MAX_CONCURRENT_BATCHES = 8;
+
+    private final boolean enabled;
+
+    private final Duration timeout;
+
+    private final WebClient webClient;
+
+    private final int batchSize;
+
+    private final Duration batchWindow;
+
+    private final int maxPending;
+
+    // replaced with the batcher when it is restarted
+    private volatile Sinks.Many<PendingRequest> pendingRequests;
+
+    private volatile Disposable batcher;
+
+    private volatile boolean closed;
+
+    /**
+     * @param webClientBuilder the builder configured by Spring Boot, whose connector shares the
+     *                         pooled connections of the application's Reactor Netty resources
+     */
+    @Autowired
+    public QuotationEngineClient(WebClient.Builder webClientBuilder,
+                                 @Value("${app.quotationEngineSrvUrl}") String quotationEngineSrvUrl,
+                                 @Value("${app.quotationEngine.enabled:false}") boolean enabled,
+                                 @Value("${app.quotationEngine.batchSize:32}") int batchSize,
+                                 @Value("${app.quotationEngine.batchWindow:5}") long batchWindowMillis,
+                                 @Value("${app.quotationEngine.timeout:300}") long timeoutMillis,
+                                 @Value("${app.quotationEngine.maxPending:1024}") int maxPending) {
+        this.enabled = enabled;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+
+        // the builder is shared, configure a copy of it
+        this.webClient = webClientBuilder.clone().baseUrl(quotationEngineSrvUrl)
+                .build();
+
+        this.batchSize = batchSize;
+        this.batchWindow = Duration.ofMillis(batchWindowMillis);
+        this.maxPending = maxPending;
+        startBatcher();
+    }
+
+    public QuotationEngineClient(String quotationEngineSrvUrl) {
+        this(WebClient.builder(), quotationEngineSrvUrl, true, 32, 5, 300, 1024);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The price of the request, empty if the engine has no price for it or too many requests are
+     * waiting for a batch already.
+     */
+    public Optional<Double> getPrice(QuotationEngineReq request) {
+        PendingRequest pendingRequest = new PendingRequest(request);
+
+        Sinks.Many<PendingRequest> sink = pendingRequests;
+        Sinks.EmitResult emitResult;
+        do {
+            // concurrent callers fail rather than wait for each other, retry until the sink is free
+            emitResult = sink.tryEmitNext(pendingRequest);
+        } while (emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+
+        if (emitResult.isFailure()) {
+            log.debug("Quotation engine request not queued: {}", emitResult);
+            return Optional.empty();
+        }
+
+        return pendingRequest.result.asMono()
+                .timeout(timeout)
+                // on a time out or an interrupt nobody waits for the price any more
+                .doFinally(signalType -> pendingRequest.abandoned = true)
+                .blockOptional();
+    }
+
+    /**
+     * Batches the pending requests until the client is closed. Batches beyond those the engine is
+     * sent are dropped, their callers price locally, and the batcher is restarted should it fail,
+     * so that the engine is not given up on for the life of the client.
+     */
+    private void startBatcher() {
+        Sinks.Many<PendingRequest> sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingRequest>get(maxPending).get());
+        pendingRequests = sink;
+        batcher = sink.asFlux()
+                .bufferTimeout(batchSize, batchWindow)
+                // bufferTimeout fails once its window closes without demand, which it must never lack
+                .onBackpressureBuffer(Math.max(1, maxPending / batchSize), QuotationEngineClient::dropBatch,
+                        BufferOverflowStrategy.DROP_LATEST)
+                .flatMap(this::sendBatch, MAX_CONCURRENT_BATCHES)
+                .subscribe(batch -> { }, e -> {
+                    log.error("Quotation engine batching failed, restarting: {}", e.toString());
+                    if (!closed) {
+                        startBatcher();
+                    }
+                });
+    }
+
+    private static void dropBatch(List<PendingRequest> batch) {
+        log.debug("Quotation engine batch of {} dropped, too many batches waiting", batch.size());
+        batch.forEach(pendingRequest -> pendingRequest.result.tryEmitEmpty());
+    }
+
+    private Mono<Void> sendBatch(List<PendingRequest> pendingBatch) {
+
+        List<PendingRequest> batch = pendingBatch.stream()
+                .filter(pendingRequest -> !pendingRequest.abandoned)
+                .collect(Collectors.toList());
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<QuotationEngineReq> requests = batch.stream()
+                .map(pendingRequest -> pendingRequest.request)
+                .collect(Collectors.toList());
+
+        return requestPrices(requests)
+                .doOnNext(responses -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        Double amount = i < responses.size() ? responses.get(i).getAmount() : null;
+                        if (amount == null) {
+                            batch.get(i).result.tryEmitEmpty();
+                        } else {
+                            batch.get(i).result.tryEmitValue(amount);
+                        }
+                    }
+                })
+                .doOnError(e -> {
+                    log.warn("Quotation engine batch of {} failed: {}", batch.size(), e.toString());
+                    batch.forEach(pendingRequest -> pendingRequest.result.tryEmitError(e));
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private Mono<List<QuotationEngineRes>> requestPrices(List<QuotationEngineReq> requests) {
+        return webClient.post()
+                .uri(PRICES_URI)
+                .bodyValue(requests)
+                .retrieve()
+                .bodyToFlux(QuotationEngineRes.class)
+                .collectList()
+                // nobody waits for the prices any longer, a hung call must not hold up later batches
+                .timeout(timeout);
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        pendingRequests.tryEmitComplete();
+        batcher.dispose();
+    }
+
+    @RequiredArgsConstructor
+    private static class PendingRequest {
+        private final QuotationEngineReq request;
+        private final Sinks.One<Double> result = Sinks.one();
+        private volatile boolean abandoned;
+    }
+}
@@ -0,0 +1,33 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.annotation.CircuitBreaker;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.stereotype.Service;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
+
+import java.util.Optional;
+
+@Slf4j
+@Service
+public class RetryableQuotationEngineClient {
+    @Autowired
+    private QuotationEngineClient quotationEngineClient;
+
+    public boolean isEnabled() {
+        return quotationEngineClient.isEnabled();
+    }
+
+    // no backoff retries here, pricing locally is cheaper than waiting for the engine to recover
+    @CircuitBreaker(include = RuntimeException.class, maxAttempts = 3, openTimeout = 5000L, resetTimeout = 20000L)
+    public Optional<Double> getPrice(QuotationEngineReq request) {
+        return quotationEngineClient.getPrice(request);
+    }
+
+    @Recover
+    public Optional<Double> recoverPrice(RuntimeException e, QuotationEngineReq request) {
+        log.debug("Quotation engine unavailable, fall back to local pricing: {}", e.toString());
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,97 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Concurrency limit adapted to the measured latency, additive increase / multiplicative decrease.
+ *
+ * Each completed request within the latency threshold grows the limit by 1/limit, i.e. by one
+ * after a full limit of good requests, as long as the limit is actually in use. A request over
+ * the threshold or failed with a server error cuts the limit by the backoff ratio, once for all
+ * the requests admitted under the limit before the cut: a slow downstream slows down every request
+ * in flight, and cutting once for each of them would collapse the limit to the minimum. Priority
+ * requests may use a few slots above the limit, so cheap reads keep being served when the
+ * limit is saturated by slow requests.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final long latencyThresholdNanos;
+
+	private final double backoffRatio;
+
+	private final int priorityHeadroom;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	// the limit is a double so that it can grow by a fraction per request, kept as bits for CAS updates
+	private final AtomicLong limitBits;
+
+	// long enough ago for any request to be started after it, yet safe to subtract from
+	private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime() - (1L << 62));
+
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdInMillis,
+									  double backoffRatio, int priorityHeadroom) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdInMillis);
+		this.backoffRatio = backoffRatio;
+		this.priorityHeadroom = priorityHeadroom;
+		this.limitBits = new AtomicLong(Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+	}
+
+	public boolean tryAcquire(boolean priority) {
+		int allowed = getLimit() + (priority ? priorityHeadroom : 0);
+		while (true) {
+			int current = inFlight.get();
+			if (current >= allowed) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	// releases a request which does not take part in adapting the limit
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public void release(long latencyNanos, boolean failed) {
+		int inFlightBefore = inFlight.getAndDecrement();
+		if (failed || latencyNanos > latencyThresholdNanos) {
+			long now = System.nanoTime();
+			long lastDecrease = lastDecreaseNanos.get();
+			// a request started before the last cut has been accounted for by it
+			if (now - latencyNanos - lastDecrease >= 0 && lastDecreaseNanos.compareAndSet(lastDecrease, now)) {
+				updateLimit(limit -> Math.max(minLimit, limit * backoffRatio));
+			}
+		} else if (inFlightBefore * 2 >= limit()) {
+			// only grow a limit that is in use, an idle service tells nothing about its capacity
+			updateLimit(limit -> Math.min(maxLimit, limit + 1 / limit));
+		}
+	}
+
+	public int getLimit() {
+		return (int) limit();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private double limit() {
+		return Double.longBitsToDouble(limitBits.get());
+	}
+
+	private void updateLimit(DoubleUnaryOperator update) {
+		limitBits.updateAndGet(bits -> Double.doubleToLongBits(update.applyAsDouble(Double.longBitsToDouble(bits))));
+	}
+}
@@ -0,0 +1,112 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Sheds quotation requests beyond the adaptive concurrency limit with 503 and Retry-After,
+ * instead of letting them queue up behind slow downstream calls.
+ *
+ * Quotation reads (GET) are prioritised over generation and do not adapt the limit, only the
+ * latency of generation does.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+	private static final String REJECTED_BODY = "{\"status\":503,\"error\":\"Service Unavailable\","
+			+ "\"message\":\"Quotation service is at capacity, retry later\"}";
+
+	private final AdaptiveConcurrencyLimiter limiter;
+
+	private final String retryAfterInSeconds;
+
+	private final Counter rejectedReads;
+
+	private final Counter rejectedGenerations;
+
+	public AdmissionControlFilter(AdaptiveConcurrencyLimiter limiter, long retryAfterInSeconds, MeterRegistry meterRegistry) {
+		this.limiter = limiter;
+		this.retryAfterInSeconds = String.valueOf(retryAfterInSeconds);
+		this.rejectedReads = Counter.builder("quotation.admission.rejected").tag("request", "read").register(meterRegistry);
+		this.rejectedGenerations = Counter.builder("quotation.admission.rejected").tag("request", "generate").register(meterRegistry);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		boolean read = HttpMethod.GET.matches(request.getMethod());
+		if (!limiter.tryAcquire(read)) {
+			(read ? rejectedReads : rejectedGenerations).increment();
+			reject(response);
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean failed = true;
+		boolean async = false;
+		try {
+			filterChain.doFilter(request, response);
+			failed = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+			// generation continues off the request thread, it holds its slot until the response completes
+			async = !read && request.isAsyncStarted();
+			if (async) {
+				request.getAsyncContext().addListener(new ReleaseOnComplete(response, start));
+			}
+		} finally {
+			if (read) {
+				limiter.release();
+			} else if (!async) {
+				limiter.release(System.nanoTime() - start, failed);
+			}
+		}
+	}
+
+	private void reject(HttpServletResponse response) throws IOException {
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterInSeconds);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.getWriter().write(REJECTED_BODY);
+	}
+
+	private class ReleaseOnComplete implements AsyncListener {
+
+		private final HttpServletResponse response;
+
+		private final long start;
+
+		ReleaseOnComplete(HttpServletResponse response, long start) {
+			this.response = response;
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			limiter.release(System.nanoTime() - start, response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value());
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
+}
@@ -16,6 +16,12 @@ import java.util.Map;
 @ControllerAdvice
 public class ControllerErrorHandler {
 
+	private final ObjectMapper objectMapper;
+
+	public ControllerErrorHandler(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	public ResponseEntity<String> handleValidationError(MethodArgumentNotValidException ex) throws JsonProcessingException {
@@ -27,8 +33,7 @@ public class ControllerErrorHandler {
 			errors.put(fieldName, errorMessage);
 		});
 		
-		ObjectMapper mapper = new ObjectMapper();
-		String body = mapper.writeValueAsString(errors);
+		String body = objectMapper.writeValueAsString(errors);
 		
 		return ResponseEntity.badRequest().body(body);
 	}
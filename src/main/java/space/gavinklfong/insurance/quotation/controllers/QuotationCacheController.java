@@ -0,0 +1,51 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import space.gavinklfong.insurance.quotation.apiclients.PeerQuotationCacheClient;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.services.SharedQuotationCache;
+
+/**
+ * This instance's partition of the shared quotation cache, for the peer instances only.
+ *
+ * Requests without the shared secret are refused. A quotation pushed by a peer is cached only with
+ * a valid signature of its content, which takes no store read.
+ */
+@RestController
+@RequestMapping("/internal/quotation-cache")
+@ConditionalOnProperty(name = "app.quotation.sharedCache.enabled", havingValue = "true")
+public class QuotationCacheController {
+
+	@Autowired
+	private SharedQuotationCache sharedCache;
+
+	@GetMapping("/{id}")
+	public ResponseEntity<Quotation> getQuotation(@PathVariable String id,
+												  @RequestHeader(value = PeerQuotationCacheClient.SECRET_HEADER, required = false) String secret) {
+		if (!sharedCache.isPeerSecret(secret)) {
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+		}
+		return ResponseEntity.of(sharedCache.getLocal(id));
+	}
+
+	@PutMapping("/{id}")
+	public ResponseEntity<Void> putQuotation(@PathVariable String id, @RequestBody Quotation quotation,
+											 @RequestHeader(value = PeerQuotationCacheClient.SECRET_HEADER, required = false) String secret,
+											 @RequestHeader(value = PeerQuotationCacheClient.SIGNATURE_HEADER, required = false) String signature) {
+		if (!sharedCache.isPeerSecret(secret)) {
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+		}
+		if (!id.equals(quotation.getQuotationCode())) {
+			return ResponseEntity.badRequest().build();
+		}
+		if (!sharedCache.isSignedByPeer(quotation, signature)) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+		sharedCache.putLocal(quotation);
+		return ResponseEntity.noContent().build();
+	}
+}
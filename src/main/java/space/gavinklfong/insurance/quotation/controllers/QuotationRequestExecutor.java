@@ -0,0 +1,92 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import space.gavinklfong.insurance.quotation.services.QuotationCancellation;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs quotation requests off the request thread, so that they can be cancelled once the client
+ * disconnects or the request times out, rather than retrying downstream calls for a response
+ * nobody reads.
+ *
+ * A disconnect is noticed where the container reports it as an error on the asynchronous request,
+ * e.g. a reset HTTP/2 stream. Tomcat on HTTP/1.1 reports a closed connection only on writing to
+ * it, which a request waiting for its quotation does not do, so there an abandoned request runs
+ * to its end. The time out only bounds requests which are stuck: its default of 60 seconds is
+ * well above the retry budget of a request, the backoffs of the customer lookup (up to 6 s), the
+ * product lookup (up to 9 s for travel products) and the save (2 s), so that a request whose
+ * client is still waiting is never cancelled while it can still succeed. A request cancelled
+ * while queued for a worker does not run. Requests beyond the number of workers wait in the
+ * queue, the admission limit bounds them.
+ */
+@Slf4j
+@Component
+public class QuotationRequestExecutor {
+
+	static final String CANCELLED_COUNTER = "quotation.requests.cancelled";
+
+	private final ThreadPoolExecutor workers;
+
+	private final ConcurrentTaskExecutor taskExecutor;
+
+	private final long timeoutMillis;
+
+	private final MeterRegistry meterRegistry;
+
+	@Autowired
+	public QuotationRequestExecutor(@Value("${app.quotation.requests.workers:200}") int workers,
+									@Value("${app.quotation.requests.timeout:60}") long timeoutSeconds,
+									MeterRegistry meterRegistry) {
+		this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+		this.meterRegistry = meterRegistry;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "quotation-request-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.workers.allowCoreThreadTimeOut(true);
+		this.taskExecutor = new ConcurrentTaskExecutor(this.workers);
+	}
+
+	/**
+	 * The request as an asynchronous task, cancelled on a client disconnect or time out.
+	 */
+	public <T> WebAsyncTask<T> submit(Callable<T> request) {
+		QuotationCancellation cancellation = new QuotationCancellation();
+		WebAsyncTask<T> task = new WebAsyncTask<>(timeoutMillis, taskExecutor, () -> cancellation.run(request));
+		task.onError(() -> this.<T>cancel(cancellation, "disconnect"));
+		task.onTimeout(() -> this.<T>cancel(cancellation, "timeout"));
+		return task;
+	}
+
+	@PreDestroy
+	public void close() {
+		workers.shutdownNow();
+	}
+
+	// the error or the time out is then handled as without the callback
+	@SuppressWarnings("unchecked")
+	private <T> T cancel(QuotationCancellation cancellation, String reason) {
+		if (cancellation.cancel()) {
+			log.debug("Quotation request cancelled on {}", reason);
+			meterRegistry.counter(CANCELLED_COUNTER, "reason", reason).increment();
+		}
+		return (T) CallableProcessingInterceptor.RESULT_NONE;
+	}
+}
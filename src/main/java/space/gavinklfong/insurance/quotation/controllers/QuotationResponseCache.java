@@ -0,0 +1,148 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serialized quotations for GET /quotations/{id}.
+ *
+ * A quotation never changes once generated, so its JSON and Smile bytes are encoded on first use
+ * and served as is until the quotation expires. Entries are added on generation and on the first
+ * read of a quotation which is not cached, expired entries are dropped when the cache is full.
+ * With the off-heap index enabled nothing is cached, the quotations are encoded per read from
+ * the off-heap index rather than kept on the heap.
+ */
+@Slf4j
+@Component
+public class QuotationResponseCache {
+
+	private final ConcurrentMap<String, CachedQuotation> quotations = new ConcurrentHashMap<>();
+
+	private final ObjectMapper jsonMapper;
+
+	private final ObjectMapper smileMapper;
+
+	private final boolean enabled;
+
+	private final int maxEntries;
+
+	private final Clock clock;
+
+	@Autowired
+	public QuotationResponseCache(ObjectMapper jsonMapper,
+								  Jackson2ObjectMapperBuilder objectMapperBuilder,
+								  @Value("${app.quotation.responseCache.enabled:true}") boolean enabled,
+								  @Value("${app.quotation.responseCache.maxEntries:100000}") int maxEntries,
+								  @Value("${app.quotation.offHeapIndex.enabled:false}") boolean offHeapIndexEnabled,
+								  Clock clock) {
+		this.jsonMapper = jsonMapper;
+		this.smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+		this.enabled = enabled && !offHeapIndexEnabled;
+		this.maxEntries = maxEntries;
+		this.clock = clock;
+	}
+
+	public Optional<CachedQuotation> get(String quotationCode) {
+		CachedQuotation cached = quotations.get(quotationCode);
+		if (cached == null) {
+			return Optional.empty();
+		}
+
+		if (cached.isExpired(LocalDateTime.now(clock))) {
+			quotations.remove(quotationCode, cached);
+			return Optional.empty();
+		}
+		return Optional.of(cached);
+	}
+
+	public CachedQuotation put(Quotation quotation) {
+		CachedQuotation cached = new CachedQuotation(quotation);
+		if (!enabled || quotation.getExpiryTime() == null || cached.isExpired(LocalDateTime.now(clock))) {
+			return cached;
+		}
+
+		if (quotations.size() >= maxEntries) {
+			purgeExpired();
+			if (quotations.size() >= maxEntries) {
+				log.debug("Quotation response cache is full, skip caching quotation {}", quotation.getQuotationCode());
+				return cached;
+			}
+		}
+
+		CachedQuotation existing = quotations.putIfAbsent(quotation.getQuotationCode(), cached);
+		return existing == null ? cached : existing;
+	}
+
+	public void purgeExpired() {
+		LocalDateTime now = LocalDateTime.now(clock);
+		quotations.values().removeIf(cached -> cached.isExpired(now));
+	}
+
+	int size() {
+		return quotations.size();
+	}
+
+	// remaining validity of the quotation, the upper bound of how long a client may cache it
+	Duration timeToLive(CachedQuotation cached) {
+		if (cached.getQuotation().getExpiryTime() == null) {
+			return Duration.ZERO;
+		}
+		Duration remaining = Duration.between(LocalDateTime.now(clock), cached.getQuotation().getExpiryTime());
+		return remaining.isNegative() ? Duration.ZERO : remaining;
+	}
+
+	/**
+	 * A quotation with its lazily encoded representations.
+	 */
+	public class CachedQuotation {
+
+		private final Quotation quotation;
+
+		private volatile byte[] json;
+
+		private volatile byte[] smile;
+
+		CachedQuotation(Quotation quotation) {
+			this.quotation = quotation;
+		}
+
+		public Quotation getQuotation() {
+			return quotation;
+		}
+
+		// encoding twice on a race is harmless, both threads produce the same bytes
+		public byte[] getJson() throws JsonProcessingException {
+			byte[] bytes = json;
+			if (bytes == null) {
+				json = bytes = jsonMapper.writeValueAsBytes(quotation);
+			}
+			return bytes;
+		}
+
+		public byte[] getSmile() throws JsonProcessingException {
+			byte[] bytes = smile;
+			if (bytes == null) {
+				smile = bytes = smileMapper.writeValueAsBytes(quotation);
+			}
+			return bytes;
+		}
+
+		boolean isExpired(LocalDateTime now) {
+			return quotation.getExpiryTime() != null && !quotation.getExpiryTime().isAfter(now);
+		}
+	}
+}
@@ -1,47 +1,188 @@
 package space.gavinklfong.insurance.quotation.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import space.gavinklfong.insurance.quotation.controllers.QuotationResponseCache.CachedQuotation;
+import space.gavinklfong.insurance.quotation.dtos.QuotationJobRes;
 import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
 import space.gavinklfong.insurance.quotation.exceptions.QuotationCriteriaNotFulfilledException;
+import space.gavinklfong.insurance.quotation.exceptions.QuotationJobRejectedException;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
 import space.gavinklfong.insurance.quotation.exceptions.RecordNotFoundException;
 import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.services.QuotationJob;
+import space.gavinklfong.insurance.quotation.services.QuotationJobService;
 import space.gavinklfong.insurance.quotation.services.QuotationService;
 
 import javax.validation.Valid;
-import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
 @RequestMapping("/quotations")
 public class QuotationRestController {
 
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+	public static final String PARTNER_KEY_HEADER = "X-Api-Key";
+
+	public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+	public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+	private static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
 	@Autowired
 	private QuotationService quotationService;
+
+	@Autowired
+	private QuotationResponseCache responseCache;
+
+	@Autowired
+	private QuotationJobService jobService;
+
+	@Autowired
+	private QuotationStreamPublisher streamPublisher;
+
+	@Autowired
+	private QuotationRequestExecutor requestExecutor;
+
+	@Value("${app.quotation.jobs.maxWait:30}")
+	private long maxWaitSeconds;
 	
-	@GetMapping(value= {"/{id}"}, produces=MediaType.APPLICATION_JSON_VALUE)
-	public Quotation getQuotation(@PathVariable String id) {
+	@GetMapping(value= {"/{id}"}, produces={MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE})
+	public ResponseEntity<byte[]> getQuotation(@PathVariable String id,
+											   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
 
-		Optional<Quotation> quotation = quotationService.fetchQuotation(id);
-		if (quotation.isPresent()) {
-			return quotation.get();
-		} else {
-			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Quotation record not found");
-		}
+		CachedQuotation cached = responseCache.get(id).orElseGet(() -> {
+			Optional<Quotation> quotation = quotationService.fetchQuotation(id);
+			if (quotation.isPresent()) {
+				return responseCache.put(quotation.get());
+			} else {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Quotation record not found");
+			}
+		});
+
+		// quotations are immutable, the code identifies the content, a matching If-None-Match gets 304
+		boolean smile = acceptsSmile(accept);
+		return ResponseEntity.ok()
+				.eTag(smile ? id + "-smile" : id)
+				.cacheControl(CacheControl.maxAge(responseCache.timeToLive(cached)).cachePrivate())
+				.varyBy(HttpHeaders.ACCEPT)
+				.contentType(smile ? SMILE : MediaType.APPLICATION_JSON)
+				.body(smile ? cached.getSmile() : cached.getJson());
 	}
 	
 	
-	@PostMapping(value={"/generate"}, consumes=MediaType.APPLICATION_JSON_VALUE,
-				produces=MediaType.APPLICATION_JSON_VALUE)
-	public Quotation generateQuotation(@Valid @RequestBody QuotationReq req) throws IOException, RecordNotFoundException, QuotationCriteriaNotFulfilledException {
-		return quotationService.generateQuotation(req);
+	@PostMapping(value={"/generate"}, consumes={MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE},
+				produces={MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE})
+	public WebAsyncTask<Quotation> generateQuotation(@Valid @RequestBody QuotationReq req,
+													 @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+													 @RequestHeader(value = PARTNER_KEY_HEADER, required = false) String partnerKey) {
+		// generated off the request thread, so that a client disconnect cancels the downstream calls and their retries
+		return requestExecutor.submit(() -> {
+			Quotation quotation = quotationService.generateQuotation(req, idempotencyKey, partnerKey);
+			responseCache.put(quotation);
+			return quotation;
+		});
+	}
+
+	/**
+	 * Generates the quotation in the background, the client polls the job in the Location header.
+	 */
+	@PostMapping(value={"/jobs"}, consumes={MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE},
+				produces={MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE})
+	public ResponseEntity<QuotationJobRes> submitQuotationJob(@Valid @RequestBody QuotationReq req,
+															  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+															  @RequestHeader(value = PARTNER_KEY_HEADER, required = false) String partnerKey) throws RateLimitExceededException, QuotationJobRejectedException {
+		QuotationJob job = jobService.submit(req, idempotencyKey, partnerKey);
+		job.getResult().thenAccept(responseCache::put);
+		return ResponseEntity.accepted()
+				.location(ServletUriComponentsBuilder.fromCurrentContextPath()
+						.path("/quotations/jobs/{id}").buildAndExpand(job.getId()).toUri())
+				.body(toJobResponse(job));
+	}
+
+	/**
+	 * The job's current state, or with wait, its final state as soon as it finishes within wait seconds.
+	 */
+	@GetMapping(value= {"/jobs/{id}"}, produces={MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE})
+	public DeferredResult<QuotationJobRes> getQuotationJob(@PathVariable String id,
+														   @RequestParam(value = "wait", defaultValue = "0") long waitSeconds) {
+		QuotationJob job = jobService.getJob(id)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Quotation job not found"));
+
+		// the request thread is released while waiting, the job's completion or the timeout answers
+		long wait = Math.min(Math.max(waitSeconds, 0), maxWaitSeconds);
+		DeferredResult<QuotationJobRes> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait), () -> toJobResponse(job));
+		if (wait == 0) {
+			result.setResult(toJobResponse(job));
+		} else {
+			job.getResult().whenComplete((quotation, failure) -> result.setResult(toJobResponse(job)));
+		}
+		return result;
+	}
+
+	/**
+	 * Quotations as they are generated, optionally of one customer or product only.
+	 */
+	@GetMapping(value= {"/stream"}, produces={MediaType.TEXT_EVENT_STREAM_VALUE})
+	public SseEmitter streamQuotations(@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId,
+									   @RequestParam(value = "customerId", required = false) Long customerId,
+									   @RequestParam(value = "productCode", required = false) String productCode) {
+		return streamPublisher.subscribe(lastEventId, customerId, productCode)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many quotation stream subscribers"));
+	}
+
+	private static QuotationJobRes toJobResponse(QuotationJob job) {
+		QuotationJobRes.QuotationJobResBuilder response = QuotationJobRes.builder()
+				.jobId(job.getId())
+				.status(job.getStatus())
+				.createdTime(job.getCreatedTime())
+				.completedTime(job.getCompletedTime());
+		if (job.getResult().isDone()) {
+			Throwable failure = job.getFailure();
+			if (failure == null) {
+				response.quotation(job.getResult().join());
+			} else if (failure instanceof RecordNotFoundException || failure instanceof QuotationCriteriaNotFulfilledException) {
+				response.error(failure.getMessage());
+			} else {
+				response.error("Quotation generation failed");
+			}
+		}
+		return response.build();
+	}
+
+	// JSON unless the client prefers Smile, as the content negotiation of the message converters does
+	private static boolean acceptsSmile(String accept) {
+		if (accept == null) {
+			return false;
+		}
+		List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+		MediaType.sortBySpecificityAndQuality(acceptedTypes);
+		for (MediaType acceptedType : acceptedTypes) {
+			if (acceptedType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+				return false;
+			}
+			if (acceptedType.isCompatibleWith(SMILE)) {
+				return true;
+			}
+		}
+		return false;
 	}
-	
-	
-	
 }
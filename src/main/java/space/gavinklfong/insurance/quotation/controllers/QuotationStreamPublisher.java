@@ -0,0 +1,238 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.services.QuotationFeed;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Server-sent events of generated quotations for GET /quotations/stream.
+ *
+ * Quotations are sent from the {@link QuotationFeed}, so generation never waits for a consumer.
+ * Each subscription follows the feed with its own cursor and replays from the Last-Event-ID on
+ * reconnect. A dispatcher thread hands each subscription with events or due a heartbeat to a
+ * sender of its own, one at a time, so a consumer which stops reading only blocks its own sender,
+ * until the container's write time out fails the send. A consumer which falls behind by more than
+ * the buffer, blocked or not, is disconnected, to resume from the oldest quotation still buffered.
+ */
+@Slf4j
+@Component
+public class QuotationStreamPublisher {
+
+	static final String EVENT_NAME = "quotation";
+
+	private static final int BATCH_SIZE = 100;
+
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+	private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+	private final QuotationFeed feed;
+
+	private final int maxSubscribers;
+
+	private final long timeoutMillis;
+
+	private final LongFunction<SseEmitter> emitters;
+
+	private final ScheduledExecutorService dispatcher;
+
+	private final ThreadPoolExecutor senders;
+
+	@Autowired
+	public QuotationStreamPublisher(QuotationFeed feed,
+									MeterRegistry meterRegistry,
+									@Value("${app.quotation.stream.maxSubscribers:100}") int maxSubscribers,
+									@Value("${app.quotation.stream.timeout:1800}") long timeoutSeconds,
+									@Value("${app.quotation.stream.heartbeatInterval:15}") long heartbeatIntervalSeconds) {
+		this(feed, meterRegistry, maxSubscribers, timeoutSeconds, heartbeatIntervalSeconds, SseEmitter::new);
+	}
+
+	QuotationStreamPublisher(QuotationFeed feed, MeterRegistry meterRegistry, int maxSubscribers, long timeoutSeconds,
+							 long heartbeatIntervalSeconds, LongFunction<SseEmitter> emitters) {
+		this.feed = feed;
+		this.emitters = emitters;
+		this.maxSubscribers = maxSubscribers;
+		this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+
+		Gauge.builder("quotation.stream.subscribers", subscriptions, Set::size).register(meterRegistry);
+
+		this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "quotation-stream");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// at most one send in progress per subscription, so no send ever waits for a thread
+		AtomicInteger threadCount = new AtomicInteger();
+		this.senders = new ThreadPoolExecutor(maxSubscribers, maxSubscribers, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "quotation-stream-send-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.senders.allowCoreThreadTimeOut(true);
+		// keeps idle connections open through proxies and detects consumers gone away
+		dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalSeconds, heartbeatIntervalSeconds, TimeUnit.SECONDS);
+		feed.addListener(this::scheduleDispatch);
+	}
+
+	/**
+	 * Subscribes to the quotations after the last event id, or to new quotations without one,
+	 * empty if there are too many subscribers already.
+	 */
+	public Optional<SseEmitter> subscribe(String lastEventId, Long customerId, String productCode) {
+		if (subscriptions.size() >= maxSubscribers) {
+			return Optional.empty();
+		}
+
+		long cursor = lastEventId == null ? feed.getLastSequence() : feed.resumeAfter(lastEventId);
+		SseEmitter emitter = emitters.apply(timeoutMillis);
+		Subscription subscription = new Subscription(emitter, cursor, customerId, productCode);
+		emitter.onCompletion(() -> subscriptions.remove(subscription));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError(e -> subscriptions.remove(subscription));
+		subscriptions.add(subscription);
+
+		scheduleDispatch();
+		return Optional.of(emitter);
+	}
+
+	int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	@PreDestroy
+	public void close() {
+		dispatcher.shutdownNow();
+		senders.shutdownNow();
+		// a subscription blocked in a send is completed by its sender
+		subscriptions.stream()
+				.filter(subscription -> !subscription.sending.get())
+				.forEach(subscription -> subscription.emitter.complete());
+	}
+
+	// at most one dispatch pending, a publish during a dispatch schedules the next one
+	private void scheduleDispatch() {
+		if (dispatchScheduled.compareAndSet(false, true)) {
+			dispatcher.execute(() -> {
+				dispatchScheduled.set(false);
+				subscriptions.forEach(subscription -> dispatch(subscription, false));
+			});
+		}
+	}
+
+	private void heartbeat() {
+		subscriptions.forEach(subscription -> dispatch(subscription, true));
+	}
+
+	// on the dispatcher thread, never blocks
+	private void dispatch(Subscription subscription, boolean heartbeat) {
+		if (subscription.sending.compareAndSet(false, true)) {
+			senders.execute(() -> send(subscription, heartbeat));
+		} else if (feed.getOldestSequence() > subscription.fetched + 1) {
+			// its sender is blocked, the consumer stopped reading; disconnected once the send returns
+			log.debug("Quotation stream consumer stopped reading and fell behind by more than the buffer, disconnect");
+			subscriptions.remove(subscription);
+			subscription.overrun = true;
+		}
+	}
+
+	// on the sender of the subscription, sends until the subscription has caught up with the feed
+	private void send(Subscription subscription, boolean heartbeat) {
+		do {
+			try {
+				if (heartbeat) {
+					subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+					heartbeat = false;
+				}
+				List<QuotationFeed.Event> events;
+				while (!subscription.overrun && !(events = feed.since(subscription.cursor, BATCH_SIZE)).isEmpty()) {
+					if (events.get(0).getSequence() > subscription.cursor + 1) {
+						log.debug("Quotation stream consumer fell behind by more than the buffer, disconnect");
+						subscription.overrun = true;
+						break;
+					}
+					subscription.fetched = events.get(events.size() - 1).getSequence();
+					for (QuotationFeed.Event event : events) {
+						if (subscription.accepts(event.getQuotation())) {
+							subscription.emitter.send(SseEmitter.event()
+									.id(event.getId())
+									.name(EVENT_NAME)
+									.data(event.getQuotation(), MediaType.APPLICATION_JSON));
+						}
+						subscription.cursor = event.getSequence();
+					}
+				}
+			} catch (IOException | IllegalStateException e) {
+				log.debug("Quotation stream consumer gone: {}", e.toString());
+				subscriptions.remove(subscription);
+				return;
+			}
+			if (subscription.overrun) {
+				disconnect(subscription);
+				return;
+			}
+			subscription.sending.set(false);
+			// a dispatch skipped while this one was sending is made up for here
+		} while (feed.getLastSequence() > subscription.cursor && subscription.sending.compareAndSet(false, true));
+	}
+
+	private void disconnect(Subscription subscription) {
+		subscriptions.remove(subscription);
+		subscription.emitter.complete();
+	}
+
+	private static class Subscription {
+
+		private final SseEmitter emitter;
+
+		private final Long customerId;
+
+		private final String productCode;
+
+		// whether the subscription's sender is sending, set by the dispatcher and cleared by the sender
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		// sequence number of the last event sent, written by the sender
+		private volatile long cursor;
+
+		// sequence number of the last event the sender has taken from the feed to send
+		private volatile long fetched;
+
+		private volatile boolean overrun;
+
+		Subscription(SseEmitter emitter, long cursor, Long customerId, String productCode) {
+			this.emitter = emitter;
+			this.cursor = cursor;
+			this.fetched = cursor;
+			this.customerId = customerId;
+			this.productCode = productCode;
+		}
+
+		boolean accepts(Quotation quotation) {
+			return (customerId == null || customerId.equals(quotation.getCustomerId()))
+					&& (productCode == null || productCode.equals(quotation.getProductCode()));
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package space.gavinklfong.insurance.quotation.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+/**
+ * A change of the product catalogue, versions increase strictly along the change feed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductChange {
+
+    private long version;
+
+    private String productCode;
+
+    // the complete product after the change, null if the product is withdrawn
+    private Product product;
+
+}
@@ -19,4 +19,6 @@ public class QuotationEngineReq {
 
     private Product product;
 
+    private String postCode;
+
 }
@@ -0,0 +1,28 @@
+package space.gavinklfong.insurance.quotation.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.services.QuotationJobStatus;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QuotationJobRes {
+
+    private String jobId;
+    private QuotationJobStatus status;
+    private LocalDateTime createdTime;
+    private LocalDateTime completedTime;
+    // set once the job is completed
+    private Quotation quotation;
+    // set once the job is failed
+    private String error;
+}
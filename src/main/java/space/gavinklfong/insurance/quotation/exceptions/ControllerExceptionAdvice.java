@@ -1,5 +1,7 @@
 package space.gavinklfong.insurance.quotation.exceptions;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -16,4 +18,23 @@ public class ControllerExceptionAdvice {
     public final ResponseEntity<String> handleRecordNotFoundException(Exception ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
+
+    @ExceptionHandler({RateLimitExceededException.class})
+    public final ResponseEntity<String> handleRateLimitExceededException(RateLimitExceededException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler({IdempotencyKeyReusedException.class})
+    public final ResponseEntity<String> handleIdempotencyKeyReusedException(Exception ex) {
+        return ResponseEntity.unprocessableEntity().body(ex.getMessage());
+    }
+
+    @ExceptionHandler({QuotationJobRejectedException.class})
+    public final ResponseEntity<String> handleQuotationJobRejectedException(QuotationJobRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
 }
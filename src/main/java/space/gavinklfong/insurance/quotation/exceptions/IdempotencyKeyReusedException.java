@@ -0,0 +1,8 @@
+package space.gavinklfong.insurance.quotation.exceptions;
+
+public class IdempotencyKeyReusedException extends Exception {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -1,12 +1,26 @@
 package space.gavinklfong.insurance.quotation.exceptions;
 
+import space.gavinklfong.insurance.quotation.rules.Eligibility;
+
 public class QuotationCriteriaNotFulfilledException extends Exception {
 
+    private final Eligibility reason;
+
     public QuotationCriteriaNotFulfilledException() {
-        super();
+        this(null, null);
     }
 
     public QuotationCriteriaNotFulfilledException(String msg) {
+        this(msg, null);
+    }
+
+    public QuotationCriteriaNotFulfilledException(String msg, Eligibility reason) {
         super(msg);
+        this.reason = reason;
+    }
+
+    // the criterion not fulfilled, null if not known
+    public Eligibility getReason() {
+        return reason;
     }
 }
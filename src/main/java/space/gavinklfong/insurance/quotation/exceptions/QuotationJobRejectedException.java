@@ -0,0 +1,15 @@
+package space.gavinklfong.insurance.quotation.exceptions;
+
+public class QuotationJobRejectedException extends Exception {
+
+    private final long retryAfterSeconds;
+
+    public QuotationJobRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,15 @@
+package space.gavinklfong.insurance.quotation.exceptions;
+
+public class RateLimitExceededException extends Exception {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
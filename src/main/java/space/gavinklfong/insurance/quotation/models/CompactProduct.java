@@ -0,0 +1,53 @@
+package space.gavinklfong.insurance.quotation.models;
+
+import lombok.Value;
+
+import java.util.Objects;
+
+/**
+ * Memory-compact, immutable view of {@link Product} for caching and quotation evaluation.
+ *
+ * Post code lists are held as shared {@link PostCodeSet} instances and prices as primitive
+ * doubles, so a catalogue of many products across a handful of regions costs little heap.
+ */
+@Value
+public class CompactProduct {
+
+	String productCode;
+	String productPlan;
+	String productClass;
+	PostCodeSet postCodesInService;
+	double listedPrice;
+	PostCodeSet postCodesWithDiscount;
+	double postCodeDiscountRate;
+
+	public static CompactProduct from(Product product) {
+		Objects.requireNonNull(product.getListedPrice(), "Product listed price is missing");
+
+		return new CompactProduct(
+				product.getProductCode(),
+				intern(product.getProductPlan()),
+				intern(product.getProductClass()),
+				PostCodeSet.of(product.getPostCodesInService()),
+				product.getListedPrice(),
+				PostCodeSet.of(product.getPostCodesWithDiscount()),
+				product.getPostCodeDiscountRate() == null ? 0 : product.getPostCodeDiscountRate()
+		);
+	}
+
+	public Product toProduct() {
+		return Product.builder()
+				.productCode(productCode)
+				.productPlan(productPlan)
+				.productClass(productClass)
+				.postCodesInService(postCodesInService.toArray())
+				.listedPrice(listedPrice)
+				.postCodesWithDiscount(postCodesWithDiscount.toArray())
+				.postCodeDiscountRate(postCodeDiscountRate)
+				.build();
+	}
+
+	private static String intern(String value) {
+		return value == null ? null : value.intern();
+	}
+}
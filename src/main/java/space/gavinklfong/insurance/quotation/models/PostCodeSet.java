@@ -0,0 +1,104 @@
+package space.gavinklfong.insurance.quotation.models;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static java.lang.String.CASE_INSENSITIVE_ORDER;
+
+/**
+ * Immutable, interned set of post codes.
+ *
+ * Products of the same region share identical post code lists, so equal sets are
+ * deduplicated into one shared instance. Sets are interned weakly: a set no product or rule
+ * set refers to any more, e.g. after a catalogue sync or a rules reload, is garbage collected.
+ * Post codes are stored upper-cased and sorted, and lookups are case-insensitive binary
+ * searches which do not allocate.
+ */
+public final class PostCodeSet {
+
+	public static final PostCodeSet EMPTY = new PostCodeSet(new String[0]);
+
+	// weak keys and values, an entry goes with its set; interning is rare, sets are created on compiling products and rules
+	private static final Map<PostCodeSet, WeakReference<PostCodeSet>> INTERNED = new WeakHashMap<>();
+
+	private final String[] postCodes;
+
+	private final int hash;
+
+	private PostCodeSet(String[] postCodes) {
+		this.postCodes = postCodes;
+		this.hash = Arrays.hashCode(postCodes);
+	}
+
+	public static PostCodeSet of(String... postCodes) {
+		if (postCodes == null || postCodes.length == 0) {
+			return EMPTY;
+		}
+
+		String[] normalized = Arrays.stream(postCodes)
+				.filter(postCode -> postCode != null && !postCode.isBlank())
+				.map(postCode -> postCode.trim().toUpperCase(Locale.ROOT))
+				.distinct()
+				.sorted(CASE_INSENSITIVE_ORDER)
+				.map(String::intern)
+				.toArray(String[]::new);
+
+		if (normalized.length == 0) {
+			return EMPTY;
+		}
+
+		PostCodeSet candidate = new PostCodeSet(normalized);
+		synchronized (INTERNED) {
+			WeakReference<PostCodeSet> interned = INTERNED.get(candidate);
+			PostCodeSet existing = interned == null ? null : interned.get();
+			if (existing != null) {
+				return existing;
+			}
+			INTERNED.put(candidate, new WeakReference<>(candidate));
+			return candidate;
+		}
+	}
+
+	public boolean contains(String postCode) {
+		return postCode != null && Arrays.binarySearch(postCodes, postCode, CASE_INSENSITIVE_ORDER) >= 0;
+	}
+
+	public int size() {
+		return postCodes.length;
+	}
+
+	public boolean isEmpty() {
+		return postCodes.length == 0;
+	}
+
+	public String[] toArray() {
+		return postCodes.clone();
+	}
+
+	static int internedCount() {
+		synchronized (INTERNED) {
+			return INTERNED.size();
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof PostCodeSet)) return false;
+		PostCodeSet that = (PostCodeSet) o;
+		return hash == that.hash && Arrays.equals(postCodes, that.postCodes);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return "PostCodeSet(size=" + postCodes.length + ")";
+	}
+}
@@ -1,11 +1,16 @@
 package space.gavinklfong.insurance.quotation.models;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import java.time.LocalDateTime;
 
 @Data
@@ -14,7 +19,7 @@ import java.time.LocalDateTime;
 @Builder
 @Entity
 @Table(name = "quotation")
-public class Quotation {
+public class Quotation implements Persistable<String> {
 
 	@With
 	@Id
@@ -28,4 +33,30 @@ public class Quotation {
 	private String productCode;
 
 	private Long customerId;
+
+	// quotation codes are assigned by the application, tell JPA to insert without a select first
+	@Transient
+	@JsonIgnore
+	@Builder.Default
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private boolean isNew = true;
+
+	@Override
+	@JsonIgnore
+	public String getId() {
+		return quotationCode;
+	}
+
+	@Override
+	@JsonIgnore
+	public boolean isNew() {
+		return isNew;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		isNew = false;
+	}
 }
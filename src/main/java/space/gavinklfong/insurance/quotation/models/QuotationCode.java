@@ -0,0 +1,80 @@
+package space.gavinklfong.insurance.quotation.models;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Quotation code carrying the shard storing the quotation, the node which generated it and when.
+ *
+ * The code is a time ordered UUID in the layout of UUID version 7, so it stays a valid UUID for
+ * clients, and codes generated close in time sort together in an index:
+ *
+ * [48 bit epoch millis][4 bit version 7][12 bit shard][2 bit variant][14 bit node][48 bit random]
+ */
+public final class QuotationCode {
+
+	public static final int MAX_SHARDS = 1 << 12;
+
+	public static final int MAX_NODES = 1 << 14;
+
+	private static final int VERSION = 7;
+
+	private static final int VARIANT = 2;
+
+	private final int shard;
+
+	private final int node;
+
+	private final long timestamp;
+
+	private QuotationCode(int shard, int node, long timestamp) {
+		this.shard = shard;
+		this.node = node;
+		this.timestamp = timestamp;
+	}
+
+	public static String generate(int shard, int node, long timestamp, long random) {
+		if (shard < 0 || shard >= MAX_SHARDS || node < 0 || node >= MAX_NODES) {
+			throw new IllegalArgumentException("Shard or node out of range: shard=" + shard + ", node=" + node);
+		}
+		long mostSigBits = (timestamp << 16) | ((long) VERSION << 12) | shard;
+		long leastSigBits = ((long) VARIANT << 62) | ((long) node << 48) | (random & 0xFFFF_FFFF_FFFFL);
+		return new UUID(mostSigBits, leastSigBits).toString();
+	}
+
+	/**
+	 * Empty for codes in another format, e.g. the random UUIDs of earlier versions.
+	 */
+	public static Optional<QuotationCode> parse(String quotationCode) {
+		if (quotationCode == null || quotationCode.length() != 36) {
+			return Optional.empty();
+		}
+
+		UUID uuid;
+		try {
+			uuid = UUID.fromString(quotationCode);
+		} catch (IllegalArgumentException e) {
+			return Optional.empty();
+		}
+		if (uuid.version() != VERSION || uuid.variant() != VARIANT) {
+			return Optional.empty();
+		}
+
+		long mostSigBits = uuid.getMostSignificantBits();
+		long leastSigBits = uuid.getLeastSignificantBits();
+		return Optional.of(new QuotationCode((int) (mostSigBits & 0xFFF), (int) ((leastSigBits >>> 48) & 0x3FFF), mostSigBits >>> 16));
+	}
+
+	public int getShard() {
+		return shard;
+	}
+
+	public int getNode() {
+		return node;
+	}
+
+	// epoch millis of generation
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
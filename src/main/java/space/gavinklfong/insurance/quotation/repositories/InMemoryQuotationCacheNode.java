@@ -0,0 +1,73 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache node in the local JVM, the partition this instance serves to its peers.
+ *
+ * Also stands in for remote nodes in tests. Expired quotations are not served, and they are
+ * dropped when the node is full.
+ */
+@Slf4j
+public class InMemoryQuotationCacheNode implements QuotationCacheNode {
+
+    private final ConcurrentMap<String, Quotation> quotations = new ConcurrentHashMap<>();
+
+    private final String id;
+
+    private final int maxEntries;
+
+    private final Clock clock;
+
+    public InMemoryQuotationCacheNode(String id, int maxEntries, Clock clock) {
+        this.id = id;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Optional<Quotation> get(String quotationCode) {
+        Quotation quotation = quotations.get(quotationCode);
+        if (quotation == null || isExpired(quotation, LocalDateTime.now(clock))) {
+            return Optional.empty();
+        }
+        return Optional.of(quotation);
+    }
+
+    @Override
+    public void put(Quotation quotation) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (isExpired(quotation, now)) {
+            return;
+        }
+
+        if (quotations.size() >= maxEntries) {
+            quotations.values().removeIf(cached -> isExpired(cached, now));
+            if (quotations.size() >= maxEntries) {
+                log.debug("Quotation cache node {} is full, skip caching quotation {}", id, quotation.getQuotationCode());
+                return;
+            }
+        }
+        quotations.put(quotation.getQuotationCode(), quotation);
+    }
+
+    public int size() {
+        return quotations.size();
+    }
+
+    private static boolean isExpired(Quotation quotation, LocalDateTime now) {
+        return quotation.getExpiryTime() != null && !quotation.getExpiryTime().isAfter(now);
+    }
+}
@@ -0,0 +1,36 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "app.quotation.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaQuotationStore implements QuotationStore {
+
+    @Autowired
+    private QuotationRepository quotationRepo;
+
+    @Override
+    public Quotation save(Quotation quotation) {
+        return quotationRepo.save(quotation);
+    }
+
+    // inserted in one transaction, flushed as JDBC batches of hibernate.jdbc.batch_size
+    @Override
+    public List<Quotation> saveAll(List<Quotation> quotations) {
+        List<Quotation> saved = new ArrayList<>(quotations.size());
+        quotationRepo.saveAll(quotations).forEach(saved::add);
+        return saved;
+    }
+
+    @Override
+    public Optional<Quotation> findById(String quotationCode) {
+        return quotationRepo.findById(quotationCode);
+    }
+}
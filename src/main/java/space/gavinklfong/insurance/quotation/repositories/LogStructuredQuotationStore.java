@@ -0,0 +1,345 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only quotation store on a memory-mapped log file.
+ *
+ * Every save appends a checksummed record to the log and points the in-memory index at it,
+ * so a save costs a memory copy rather than a database round trip. On start up the index is
+ * rebuilt by scanning the log up to the first incomplete record. Compaction periodically
+ * rewrites the live, unexpired records into a new log file which replaces the old one.
+ *
+ * Record layout: [int payload length][int crc32 of payload][payload]
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.quotation.store.type", havingValue = "log")
+public class LogStructuredQuotationStore implements QuotationStore {
+
+	static final String LOG_FILE = "quotations.log";
+
+	private static final int MAGIC = 0x51544C47;
+	private static final int FORMAT_VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 8;
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private final Path logFile;
+
+	private final int initialCapacity;
+
+	private final boolean forceOnWrite;
+
+	private final Clock clock;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// quotation code -> offset of its latest record in the log
+	private volatile Map<String, Integer> index = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService compactor;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer mappedLog;
+
+	@Autowired
+	public LogStructuredQuotationStore(@Value("${app.quotation.store.log.dir:./data}") String dir,
+									   @Value("${app.quotation.store.log.capacity:64}") int capacityInMb,
+									   @Value("${app.quotation.store.log.compactionInterval:300}") long compactionIntervalInSeconds,
+									   @Value("${app.quotation.store.log.forceOnWrite:false}") boolean forceOnWrite,
+									   Clock clock) throws IOException {
+		this.logFile = Paths.get(dir).resolve(LOG_FILE);
+		this.initialCapacity = capacityInMb * 1024 * 1024;
+		this.forceOnWrite = forceOnWrite;
+		this.clock = clock;
+
+		Files.createDirectories(logFile.getParent());
+		open();
+
+		this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "quotation-log-compactor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (compactionIntervalInSeconds > 0) {
+			compactor.scheduleWithFixedDelay(this::compactQuietly,
+					compactionIntervalInSeconds, compactionIntervalInSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	@Override
+	public Quotation save(Quotation quotation) {
+		byte[] payload = encode(quotation);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+
+		lock.writeLock().lock();
+		try {
+			int recordSize = RECORD_HEADER_SIZE + payload.length;
+			if (mappedLog.remaining() < recordSize) {
+				compact(recordSize);
+			}
+
+			int offset = mappedLog.position();
+			mappedLog.putInt(payload.length);
+			mappedLog.putInt((int) crc.getValue());
+			mappedLog.put(payload);
+			if (forceOnWrite) {
+				mappedLog.force();
+			}
+
+			index.put(quotation.getQuotationCode(), offset);
+			return quotation;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Fail to append quotation to log", e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Optional<Quotation> findById(String quotationCode) {
+		lock.readLock().lock();
+		try {
+			Integer offset = index.get(quotationCode);
+			return offset == null ? Optional.empty() : Optional.of(read(mappedLog, offset));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Rewrites live, unexpired quotations into a new log file and drops everything else.
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			compact(0);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		compactor.shutdownNow();
+		lock.writeLock().lock();
+		try {
+			mappedLog.force();
+			channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void open() throws IOException {
+		boolean exists = Files.exists(logFile) && Files.size(logFile) > 0;
+		int capacity = exists ? (int) Math.max(Files.size(logFile), initialCapacity) : initialCapacity;
+
+		channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		mappedLog = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+		if (!exists) {
+			mappedLog.putInt(MAGIC).putInt(FORMAT_VERSION);
+			return;
+		}
+
+		if (mappedLog.getInt(0) != MAGIC || mappedLog.getInt(4) != FORMAT_VERSION) {
+			throw new IllegalStateException("Unknown quotation log format: " + logFile);
+		}
+		recover();
+	}
+
+	// rebuild the index from the log, the first incomplete or corrupted record marks the end of the log
+	private void recover() {
+		int position = FILE_HEADER_SIZE;
+		CRC32 crc = new CRC32();
+		while (position + RECORD_HEADER_SIZE <= mappedLog.capacity()) {
+			int length = mappedLog.getInt(position);
+			if (length <= 0 || position + RECORD_HEADER_SIZE + length > mappedLog.capacity()) {
+				break;
+			}
+
+			crc.reset();
+			crc.update(mappedLog.duplicate().position(position + RECORD_HEADER_SIZE).limit(position + RECORD_HEADER_SIZE + length));
+			if ((int) crc.getValue() != mappedLog.getInt(position + 4)) {
+				log.warn("Discard incomplete quotation record at offset {} of {}", position, logFile);
+				break;
+			}
+
+			index.put(read(mappedLog, position).getQuotationCode(), position);
+			position += RECORD_HEADER_SIZE + length;
+		}
+		mappedLog.position(position);
+		log.info("Recovered {} quotations from {}", index.size(), logFile);
+	}
+
+	// the new offsets replace the index only once the new log has replaced the old one, so that a failed
+	// compaction, e.g. interrupted, leaves the store on the old log
+	private void compact(int requiredSpace) throws IOException {
+		LocalDateTime now = LocalDateTime.now(clock);
+		Path compactFile = logFile.resolveSibling(LOG_FILE + ".compact");
+
+		long liveSize = FILE_HEADER_SIZE;
+		for (Integer offset : index.values()) {
+			liveSize += RECORD_HEADER_SIZE + mappedLog.getInt(offset);
+		}
+		// a mapped log is limited to 2 GB
+		if ((liveSize + requiredSpace) * 2 > Integer.MAX_VALUE) {
+			throw new IOException("Quotation log exceeds the max capacity, live size " + liveSize + " bytes");
+		}
+		int capacity = (int) Math.max(initialCapacity, (liveSize + requiredSpace) * 2);
+
+		FileChannel compactChannel = FileChannel.open(compactFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		Map<String, Integer> compactIndex = new ConcurrentHashMap<>();
+		int dropped = 0;
+		MappedByteBuffer compactLog;
+		try {
+			compactLog = compactChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			compactLog.putInt(MAGIC).putInt(FORMAT_VERSION);
+
+			for (Map.Entry<String, Integer> entry : index.entrySet()) {
+				int offset = entry.getValue();
+				Quotation quotation = read(mappedLog, offset);
+				if (quotation.getExpiryTime() != null && quotation.getExpiryTime().isBefore(now)) {
+					dropped++;
+					continue;
+				}
+
+				// copy the record as is, checksum included
+				int recordSize = RECORD_HEADER_SIZE + mappedLog.getInt(offset);
+				compactIndex.put(entry.getKey(), compactLog.position());
+				compactLog.put(mappedLog.duplicate().position(offset).limit(offset + recordSize));
+			}
+			compactLog.force();
+
+			Files.move(compactFile, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			compactChannel.close();
+			Files.deleteIfExists(compactFile);
+			throw e;
+		}
+
+		channel.close();
+		channel = compactChannel;
+		mappedLog = compactLog;
+		index = compactIndex;
+
+		log.debug("Compacted quotation log: live={}, dropped={}, capacity={}", index.size(), dropped, capacity);
+	}
+
+	private void compactQuietly() {
+		try {
+			compact();
+		} catch (IOException | RuntimeException e) {
+			log.warn("Fail to compact quotation log", e);
+		}
+	}
+
+	private static byte[] encode(Quotation quotation) {
+		byte[] quotationCode = bytes(quotation.getQuotationCode());
+		byte[] productCode = bytes(quotation.getProductCode());
+
+		ByteBuffer payload = ByteBuffer.allocate(2 + quotationCode.length + 9 + 13 + 2 + productCode.length + 9);
+		putBytes(payload, quotationCode);
+		if (quotation.getAmount() == null) {
+			payload.put((byte) 0).putDouble(0);
+		} else {
+			payload.put((byte) 1).putDouble(quotation.getAmount());
+		}
+		if (quotation.getExpiryTime() == null) {
+			payload.put((byte) 0).putLong(0).putInt(0);
+		} else {
+			payload.put((byte) 1)
+					.putLong(quotation.getExpiryTime().toEpochSecond(ZoneOffset.UTC))
+					.putInt(quotation.getExpiryTime().getNano());
+		}
+		putBytes(payload, productCode);
+		if (quotation.getCustomerId() == null) {
+			payload.put((byte) 0).putLong(0);
+		} else {
+			payload.put((byte) 1).putLong(quotation.getCustomerId());
+		}
+		return payload.array();
+	}
+
+	private static Quotation read(ByteBuffer buffer, int offset) {
+		ByteBuffer record = buffer.duplicate().position(offset + RECORD_HEADER_SIZE);
+
+		String quotationCode = getString(record);
+		boolean hasAmount = record.get() == 1;
+		double amount = record.getDouble();
+		boolean hasExpiryTime = record.get() == 1;
+		long expiryEpochSecond = record.getLong();
+		int expiryNano = record.getInt();
+		String productCode = getString(record);
+		boolean hasCustomerId = record.get() == 1;
+		long customerId = record.getLong();
+
+		return Quotation.builder()
+				.quotationCode(quotationCode)
+				.amount(hasAmount ? amount : null)
+				.expiryTime(hasExpiryTime ? LocalDateTime.ofEpochSecond(expiryEpochSecond, expiryNano, ZoneOffset.UTC) : null)
+				.productCode(productCode)
+				.customerId(hasCustomerId ? customerId : null)
+				.build();
+	}
+
+	private static byte[] bytes(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void putBytes(ByteBuffer buffer, byte[] value) {
+		if (value == null) {
+			buffer.putShort((short) -1);
+		} else {
+			buffer.putShort((short) value.length).put(value);
+		}
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		short length = buffer.getShort();
+		if (length < 0) {
+			return null;
+		}
+		byte[] value = new byte[length];
+		buffer.get(value);
+		return new String(value, StandardCharsets.UTF_8);
+	}
+}
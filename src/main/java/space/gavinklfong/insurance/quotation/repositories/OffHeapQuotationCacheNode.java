@@ -0,0 +1,36 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.util.Optional;
+
+/**
+ * Cache node in the local JVM backed by the off-heap index of active quotations, so that the
+ * partition of this instance adds no quotations to the heap.
+ */
+public class OffHeapQuotationCacheNode implements QuotationCacheNode {
+
+    private final String id;
+
+    private final OffHeapQuotationIndex index;
+
+    public OffHeapQuotationCacheNode(String id, OffHeapQuotationIndex index) {
+        this.id = id;
+        this.index = index;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Optional<Quotation> get(String quotationCode) {
+        return index.find(quotationCode);
+    }
+
+    @Override
+    public void put(Quotation quotation) {
+        index.put(quotation);
+    }
+}
@@ -0,0 +1,329 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Unexpired quotations by code, held outside the Java heap.
+ *
+ * Each quotation takes one fixed-size slot of a direct buffer in an open addressing hash table,
+ * so millions of active quotations add no objects for the garbage collector to trace. A slot
+ * holds the code as the two halves of its UUID, the amount, the expiry time, the customer id and
+ * the id of the product code in a small on-heap dictionary. Slots of expired quotations are
+ * reused by later inserts, and emptied when the table is full. The table never grows. Codes
+ * which are not lower case UUIDs, e.g. of earlier versions, are not indexed.
+ *
+ * Lookups run without locking and retry under the read lock if an insert raced with them.
+ */
+@Slf4j
+@Component
+public class OffHeapQuotationIndex {
+
+    static final int SLOT_SIZE = 48;
+
+    private static final int CODE_HIGH = 0;
+    private static final int CODE_LOW = 8;
+    private static final int AMOUNT = 16;
+    private static final int EXPIRY_SECOND = 24;
+    private static final int CUSTOMER_ID = 32;
+    private static final int EXPIRY_NANO = 40;
+    // 0 for a slot never used, so a fresh buffer is an empty table
+    private static final int PRODUCT_ID = 44;
+
+    private static final int NO_PRODUCT = -1;
+    private static final long NO_CUSTOMER = Long.MIN_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+
+    private final Map<String, Integer> productIds = new ConcurrentHashMap<>();
+
+    private final List<String> productCodes = new CopyOnWriteArrayList<>();
+
+    private final boolean enabled;
+
+    private final ByteBuffer slots;
+
+    private final int mask;
+
+    private final int maxEntries;
+
+    private final Clock clock;
+
+    // slots ever used, expired or not, guarded by the write lock
+    private int usedSlots;
+
+    @Autowired
+    public OffHeapQuotationIndex(@Value("${app.quotation.offHeapIndex.enabled:false}") boolean enabled,
+                                 @Value("${app.quotation.offHeapIndex.maxEntries:1000000}") int maxEntries,
+                                 Clock clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+
+        // at most 3/4 of the slots are used, so that every probe sequence ends at an empty slot
+        int capacity = Integer.highestOneBit(Math.max(maxEntries * 4 / 3, 2) - 1) << 1;
+        this.maxEntries = capacity / 4 * 3;
+        this.mask = capacity - 1;
+        this.slots = ByteBuffer.allocateDirect(enabled ? capacity * SLOT_SIZE : 0);
+
+        if (enabled) {
+            log.info("Off-heap quotation index: {} slots, {} MB", capacity, (long) capacity * SLOT_SIZE >> 20);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<Quotation> find(String quotationCode) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        UUID code = toUuid(quotationCode);
+        if (code == null) {
+            return Optional.empty();
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        Optional<Quotation> quotation = read(code, quotationCode);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                quotation = read(code, quotationCode);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return quotation;
+    }
+
+    /**
+     * Indexes an unexpired quotation, skipped if the code is not a UUID or the index is full.
+     */
+    public void put(Quotation quotation) {
+        if (!enabled || quotation.getExpiryTime() == null) {
+            return;
+        }
+        UUID code = toUuid(quotation.getQuotationCode());
+        long now = epochSecond(LocalDateTime.now(clock));
+        if (code == null || epochSecond(quotation.getExpiryTime()) <= now) {
+            return;
+        }
+        int productId = productId(quotation.getProductCode());
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = probe(code, now);
+            if (slot < 0) {
+                purgeExpired(now);
+                slot = probe(code, now);
+            }
+            if (slot < 0) {
+                log.debug("Off-heap quotation index is full, skip indexing quotation {}", quotation.getQuotationCode());
+                return;
+            }
+            if (slots.getInt(offset(slot) + PRODUCT_ID) == 0) {
+                usedSlots++;
+            }
+            write(offset(slot), code, quotation, productId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Number of unexpired quotations, by a scan of the table.
+     */
+    public int size() {
+        if (!enabled) {
+            return 0;
+        }
+        long now = epochSecond(LocalDateTime.now(clock));
+        long stamp = lock.readLock();
+        try {
+            int size = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                int offset = offset(slot);
+                if (slots.getInt(offset + PRODUCT_ID) != 0 && !isExpired(offset, now)) {
+                    size++;
+                }
+            }
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    // the slot of the code, else the first expired slot on its probe sequence, else the empty slot ending it
+    private int probe(UUID code, long now) {
+        int reusable = -1;
+        int slot = hash(code) & mask;
+        for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+            int offset = offset(slot);
+            if (slots.getInt(offset + PRODUCT_ID) == 0) {
+                if (reusable >= 0) {
+                    return reusable;
+                }
+                return usedSlots < maxEntries ? slot : -1;
+            }
+            if (slots.getLong(offset + CODE_HIGH) == code.getMostSignificantBits()
+                    && slots.getLong(offset + CODE_LOW) == code.getLeastSignificantBits()) {
+                return slot;
+            }
+            if (reusable < 0 && isExpired(offset, now)) {
+                reusable = slot;
+            }
+        }
+        return reusable;
+    }
+
+    // empties the slots of expired quotations, under the write lock
+    private void purgeExpired(long now) {
+        for (int slot = 0; slot <= mask; slot++) {
+            while (slots.getInt(offset(slot) + PRODUCT_ID) != 0 && isExpired(offset(slot), now)) {
+                remove(slot);
+            }
+        }
+    }
+
+    // backward shift deletion, moves the later slots of the probe sequence into the hole so that no lookup stops short
+    private void remove(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; slots.getInt(offset(next) + PRODUCT_ID) != 0; next = (next + 1) & mask) {
+            int home = hash(slots.getLong(offset(next) + CODE_HIGH), slots.getLong(offset(next) + CODE_LOW)) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                copySlot(next, hole);
+                hole = next;
+            }
+        }
+        slots.putInt(offset(hole) + PRODUCT_ID, 0);
+        usedSlots--;
+    }
+
+    private void copySlot(int from, int to) {
+        for (int i = 0; i < SLOT_SIZE; i += Long.BYTES) {
+            slots.putLong(offset(to) + i, slots.getLong(offset(from) + i));
+        }
+    }
+
+    // may see a slot half written by a concurrent insert, the caller validates the lock stamp
+    private Optional<Quotation> read(UUID code, String quotationCode) {
+        int slot = hash(code) & mask;
+        for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+            int offset = offset(slot);
+            int productId = slots.getInt(offset + PRODUCT_ID);
+            if (productId == 0) {
+                return Optional.empty();
+            }
+            if (slots.getLong(offset + CODE_HIGH) == code.getMostSignificantBits()
+                    && slots.getLong(offset + CODE_LOW) == code.getLeastSignificantBits()) {
+                if (isExpired(offset, epochSecond(LocalDateTime.now(clock)))) {
+                    return Optional.empty();
+                }
+                return Optional.of(toQuotation(offset, quotationCode, productId));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void write(int offset, UUID code, Quotation quotation, int productId) {
+        LocalDateTime expiryTime = quotation.getExpiryTime();
+        slots.putLong(offset + CODE_HIGH, code.getMostSignificantBits());
+        slots.putLong(offset + CODE_LOW, code.getLeastSignificantBits());
+        slots.putDouble(offset + AMOUNT, quotation.getAmount() == null ? Double.NaN : quotation.getAmount());
+        slots.putLong(offset + EXPIRY_SECOND, expiryTime.toEpochSecond(ZoneOffset.UTC));
+        slots.putInt(offset + EXPIRY_NANO, expiryTime.getNano());
+        slots.putLong(offset + CUSTOMER_ID, quotation.getCustomerId() == null ? NO_CUSTOMER : quotation.getCustomerId());
+        slots.putInt(offset + PRODUCT_ID, productId);
+    }
+
+    private Quotation toQuotation(int offset, String quotationCode, int productId) {
+        double amount = slots.getDouble(offset + AMOUNT);
+        long expirySecond = slots.getLong(offset + EXPIRY_SECOND);
+        long customerId = slots.getLong(offset + CUSTOMER_ID);
+        Quotation quotation = Quotation.builder()
+                .quotationCode(quotationCode)
+                .amount(Double.isNaN(amount) ? null : amount)
+                .expiryTime(LocalDateTime.ofEpochSecond(expirySecond, slots.getInt(offset + EXPIRY_NANO), ZoneOffset.UTC))
+                .productCode(productId == NO_PRODUCT ? null : productCodes.get(productId - 1))
+                .customerId(customerId == NO_CUSTOMER ? null : customerId)
+                .build();
+        quotation.setNew(false);
+        return quotation;
+    }
+
+    private boolean isExpired(int offset, long now) {
+        return slots.getLong(offset + EXPIRY_SECOND) <= now;
+    }
+
+    // product codes are few, ids from 1 are assigned on first sight and never reused
+    private int productId(String productCode) {
+        if (productCode == null) {
+            return NO_PRODUCT;
+        }
+        Integer productId = productIds.get(productCode);
+        if (productId != null) {
+            return productId;
+        }
+        synchronized (productCodes) {
+            return productIds.computeIfAbsent(productCode, code -> {
+                productCodes.add(code);
+                return productCodes.size();
+            });
+        }
+    }
+
+    private static int offset(int slot) {
+        return slot * SLOT_SIZE;
+    }
+
+    // expiry is compared in whole seconds, a quotation expires at the start of its expiry second
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int hash(UUID code) {
+        return hash(code.getMostSignificantBits(), code.getLeastSignificantBits());
+    }
+
+    private static int hash(long high, long low) {
+        long hash = high ^ low;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    // lower case UUIDs only, so that the code read back is the code indexed
+    private static UUID toUuid(String quotationCode) {
+        if (quotationCode == null || quotationCode.length() != 36) {
+            return null;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = quotationCode.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+            if (!valid) {
+                return null;
+            }
+        }
+        return UUID.fromString(quotationCode);
+    }
+}
@@ -0,0 +1,19 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.util.Optional;
+
+/**
+ * A node of the shared quotation cache, owning the quotations its share of the hash ring maps to.
+ *
+ * A cache is best effort: a node may drop entries at any time, and failures read as misses.
+ */
+public interface QuotationCacheNode {
+
+    String getId();
+
+    Optional<Quotation> get(String quotationCode);
+
+    void put(Quotation quotation);
+}
@@ -0,0 +1,24 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Persistence of generated quotations.
+ *
+ * The implementation is selected by app.quotation.store.type, jpa (default), log or sharded.
+ */
+public interface QuotationStore {
+
+    Quotation save(Quotation quotation);
+
+    default List<Quotation> saveAll(List<Quotation> quotations) {
+        return quotations.stream().map(this::save).collect(Collectors.toList());
+    }
+
+    Optional<Quotation> findById(String quotationCode);
+
+}
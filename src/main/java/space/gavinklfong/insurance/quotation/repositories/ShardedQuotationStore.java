@@ -0,0 +1,197 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.models.QuotationCode;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Quotation store partitioned over a number of data sources by the shard in the quotation code.
+ *
+ * A quotation is written to and read from its shard only, so the write throughput grows with
+ * the number of shards. Codes without a shard, e.g. of earlier versions, are placed by hash and
+ * looked up on all shards.
+ *
+ * Shards may be added but not removed: the quotations of a removed shard are not on any other,
+ * so saving a quotation with a code of a shard beyond the number of shards fails rather than
+ * writing another shard's database. Looking up such a code, which may come from a client, finds
+ * nothing.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.quotation.store.type", havingValue = "sharded")
+public class ShardedQuotationStore implements QuotationStore {
+
+    static final String CREATE_TABLE = "create table if not exists quotation (quotation_code varchar(36) primary key, "
+            + "amount double, expiry_time timestamp, product_code varchar(255), customer_id bigint)";
+
+    private static final String INSERT = "insert into quotation (quotation_code, amount, expiry_time, product_code, customer_id) "
+            + "values (?, ?, ?, ?, ?)";
+
+    private static final String UPDATE = "update quotation set amount = ?, expiry_time = ?, product_code = ?, customer_id = ? "
+            + "where quotation_code = ?";
+
+    private static final String SELECT = "select quotation_code, amount, expiry_time, product_code, customer_id "
+            + "from quotation where quotation_code = ?";
+
+    private static final RowMapper<Quotation> QUOTATION_MAPPER = (resultSet, rowNum) -> {
+        Timestamp expiryTime = resultSet.getTimestamp("expiry_time");
+        Quotation quotation = Quotation.builder()
+                .quotationCode(resultSet.getString("quotation_code"))
+                .amount(resultSet.getObject("amount", Double.class))
+                .expiryTime(expiryTime == null ? null : expiryTime.toLocalDateTime())
+                .productCode(resultSet.getString("product_code"))
+                .customerId(resultSet.getObject("customer_id", Long.class))
+                .build();
+        quotation.setNew(false);
+        return quotation;
+    };
+
+    private final List<DataSource> dataSources;
+
+    private final List<JdbcTemplate> shards;
+
+    @Autowired
+    public ShardedQuotationStore(@Value("${app.quotation.store.sharded.shards:1}") int shards,
+                                 @Value("${app.quotation.store.sharded.url}") String urlTemplate,
+                                 @Value("${app.quotation.store.sharded.username:sa}") String username,
+                                 @Value("${app.quotation.store.sharded.password:}") String password,
+                                 @Value("${app.quotation.store.sharded.maximumPoolSize:10}") int maximumPoolSize) {
+        this(createDataSources(shards, urlTemplate, username, password, maximumPoolSize));
+    }
+
+    public ShardedQuotationStore(List<? extends DataSource> dataSources) {
+        this.dataSources = new ArrayList<>(dataSources);
+        this.shards = dataSources.stream().map(JdbcTemplate::new).collect(Collectors.toList());
+        shards.forEach(shard -> shard.execute(CREATE_TABLE));
+        log.info("Sharded quotation store on {} shards", shards.size());
+    }
+
+    @Override
+    public Quotation save(Quotation quotation) {
+        JdbcTemplate shard = shards.get(shardOf(quotation.getQuotationCode()));
+        try {
+            shard.update(INSERT, insertValues(quotation));
+        } catch (DuplicateKeyException e) {
+            shard.update(UPDATE, quotation.getAmount(), timestamp(quotation), quotation.getProductCode(),
+                    quotation.getCustomerId(), quotation.getQuotationCode());
+        }
+        return quotation;
+    }
+
+    // one JDBC batch per shard
+    @Override
+    public List<Quotation> saveAll(List<Quotation> quotations) {
+        Map<Integer, List<Quotation>> quotationsByShard = new LinkedHashMap<>();
+        quotations.forEach(quotation -> quotationsByShard
+                .computeIfAbsent(shardOf(quotation.getQuotationCode()), shard -> new ArrayList<>())
+                .add(quotation));
+
+        quotationsByShard.forEach((shard, batch) -> {
+            try {
+                shards.get(shard).batchUpdate(INSERT, batch.stream()
+                        .map(ShardedQuotationStore::insertValues)
+                        .collect(Collectors.toList()));
+            } catch (DuplicateKeyException e) {
+                batch.forEach(this::save);
+            }
+        });
+        return quotations;
+    }
+
+    @Override
+    public Optional<Quotation> findById(String quotationCode) {
+        Optional<QuotationCode> code = QuotationCode.parse(quotationCode);
+        if (code.isPresent()) {
+            if (code.get().getShard() >= shards.size()) {
+                log.warn("Quotation code {} of shard {} but only {} shards, not found", quotationCode,
+                        code.get().getShard(), shards.size());
+                return Optional.empty();
+            }
+            return find(shards.get(code.get().getShard()), quotationCode);
+        }
+
+        for (JdbcTemplate shard : shards) {
+            Optional<Quotation> quotation = find(shard, quotationCode);
+            if (quotation.isPresent()) {
+                return quotation;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    int shardOf(String quotationCode) {
+        return QuotationCode.parse(quotationCode)
+                .map(this::shardOf)
+                .orElseGet(() -> Math.floorMod(quotationCode.hashCode(), shards.size()));
+    }
+
+    private int shardOf(QuotationCode code) {
+        if (code.getShard() >= shards.size()) {
+            throw new IllegalStateException("Quotation code of shard " + code.getShard() + " but only "
+                    + shards.size() + " shards, shards must not be removed");
+        }
+        return code.getShard();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+
+    private static Optional<Quotation> find(JdbcTemplate shard, String quotationCode) {
+        return shard.query(SELECT, QUOTATION_MAPPER, quotationCode).stream().findFirst();
+    }
+
+    private static Object[] insertValues(Quotation quotation) {
+        return new Object[] {quotation.getQuotationCode(), quotation.getAmount(), timestamp(quotation),
+                quotation.getProductCode(), quotation.getCustomerId()};
+    }
+
+    private static Timestamp timestamp(Quotation quotation) {
+        return quotation.getExpiryTime() == null ? null : Timestamp.valueOf(quotation.getExpiryTime());
+    }
+
+    private static List<HikariDataSource> createDataSources(int shards, String urlTemplate, String username,
+                                                           String password, int maximumPoolSize) {
+        List<HikariDataSource> dataSources = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("quotation-shard-" + shard);
+            config.setJdbcUrl(urlTemplate.replace("{shard}", String.valueOf(shard)));
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(maximumPoolSize);
+            dataSources.add(new HikariDataSource(config));
+        }
+        return dataSources;
+    }
+}
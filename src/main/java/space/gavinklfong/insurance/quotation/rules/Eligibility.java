@@ -0,0 +1,7 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+public enum Eligibility {
+	ELIGIBLE,
+	UNDER_AGE,
+	POST_CODE_OUT_OF_SERVICE
+}
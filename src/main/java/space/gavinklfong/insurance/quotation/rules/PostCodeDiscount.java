@@ -0,0 +1,11 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+/**
+ * The post code discounts applied to a quotation, the product's own and the configured rule's.
+ */
+public enum PostCodeDiscount {
+	NONE,
+	PRODUCT,
+	RULE,
+	PRODUCT_AND_RULE
+}
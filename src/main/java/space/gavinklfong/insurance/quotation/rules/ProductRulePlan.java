@@ -0,0 +1,121 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+import space.gavinklfong.insurance.quotation.models.CompactProduct;
+import space.gavinklfong.insurance.quotation.models.PostCodeSet;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.time.LocalDate;
+
+/**
+ * Evaluation plan of a single product under a {@link QuotationRuleSet}.
+ *
+ * Everything that does not depend on the customer or the post code, such as the product
+ * class surcharge, is resolved when the plan is compiled. Evaluation is primitive
+ * arithmetic and allocation-free lookups.
+ */
+public final class ProductRulePlan {
+
+	private final QuotationRuleSet ruleSet;
+
+	// product information the plan was compiled from, used to detect product changes
+	private final Product source;
+
+	private final CompactProduct product;
+
+	private final double baseAmount;
+
+	ProductRulePlan(QuotationRuleSet ruleSet, Product product) {
+		this.ruleSet = ruleSet;
+		this.source = product;
+		this.product = CompactProduct.from(product);
+		this.baseAmount = this.product.getListedPrice() * (1 + ruleSet.surchargeOf(product.getProductClass()));
+	}
+
+	boolean isCompiledFrom(Product product) {
+		return source.equals(product);
+	}
+
+	public CompactProduct getProduct() {
+		return product;
+	}
+
+	public int getMinimumAge() {
+		return ruleSet.minimumAge;
+	}
+
+	public Eligibility checkEligibility(LocalDate dob, String postCode, LocalDate today) {
+
+		// customer's age should be at or above the configured minimum
+		if (ageInYears(dob, today) < ruleSet.minimumAge) {
+			return Eligibility.UNDER_AGE;
+		}
+
+		// the request post code should be within the product's service scope
+		if (!product.getPostCodesInService().contains(postCode)) {
+			return Eligibility.POST_CODE_OUT_OF_SERVICE;
+		}
+
+		return Eligibility.ELIGIBLE;
+	}
+
+	public double price(LocalDate dob, String postCode, LocalDate today) {
+		double amount = baseAmount * ageFactor(ageInYears(dob, today));
+
+		// Offer discount if customer's post code matches the specification in product info
+		if (isDiscountApplicable(postCode)) {
+			amount *= (1 - product.getPostCodeDiscountRate());
+		}
+
+		// configured post code discount, the first matching entry applies
+		int discount = ruleDiscountOf(postCode);
+		if (discount >= 0) {
+			amount *= (1 - ruleSet.discountRates[discount]);
+		}
+
+		return amount;
+	}
+
+	public boolean isDiscountApplicable(String postCode) {
+		return product.getPostCodesWithDiscount().contains(postCode);
+	}
+
+	public PostCodeDiscount discountOf(String postCode) {
+		boolean productDiscount = isDiscountApplicable(postCode);
+		boolean ruleDiscount = ruleDiscountOf(postCode) >= 0;
+		if (productDiscount) {
+			return ruleDiscount ? PostCodeDiscount.PRODUCT_AND_RULE : PostCodeDiscount.PRODUCT;
+		}
+		return ruleDiscount ? PostCodeDiscount.RULE : PostCodeDiscount.NONE;
+	}
+
+	// index of the first configured discount covering the post code, -1 if none
+	private int ruleDiscountOf(String postCode) {
+		PostCodeSet[] discountPostCodes = ruleSet.discountPostCodes;
+		for (int i = 0; i < discountPostCodes.length; i++) {
+			if (discountPostCodes[i].contains(postCode)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private double ageFactor(int age) {
+		int[] minAges = ruleSet.bandMinAges;
+		for (int i = 0; i < minAges.length; i++) {
+			if (age >= minAges[i] && age <= ruleSet.bandMaxAges[i]) {
+				return ruleSet.bandFactors[i];
+			}
+		}
+		return 1;
+	}
+
+	// same result as Period.between(dob, today).getYears(), without the Period instance
+	static int ageInYears(LocalDate dob, LocalDate today) {
+		int age = today.getYear() - dob.getYear();
+		if (today.getMonthValue() < dob.getMonthValue()
+				|| (today.getMonthValue() == dob.getMonthValue() && today.getDayOfMonth() < dob.getDayOfMonth())) {
+			age--;
+		}
+		return age;
+	}
+}
@@ -0,0 +1,56 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Evaluates quotation eligibility and pricing against the current compiled {@link QuotationRuleSet}.
+ *
+ * A reload compiles a new rule set aside and swaps it in atomically, so an in-flight
+ * evaluation always sees one consistent set of rules.
+ */
+@Slf4j
+@Component
+public class QuotationRuleEngine {
+
+	private final AtomicLong versions = new AtomicLong();
+
+	private final AtomicReference<QuotationRuleSet> ruleSet = new AtomicReference<>();
+
+	public QuotationRuleEngine(QuotationRuleProperties properties) {
+		reload(properties);
+	}
+
+	public QuotationRuleSet reload(QuotationRuleProperties properties) {
+		QuotationRuleSet compiled = QuotationRuleSet.compile(versions.incrementAndGet(), properties);
+		ruleSet.set(compiled);
+		log.info("Quotation rules loaded: version={}, minimumAge={}, ageBands={}, postCodeDiscounts={}, productClassSurcharges={}",
+				compiled.getVersion(), compiled.getMinimumAge(), properties.getAgeBands().size(),
+				properties.getPostCodeDiscounts().size(), properties.getProductClassSurcharges().size());
+		return compiled;
+	}
+
+	public QuotationRuleSet getRuleSet() {
+		return ruleSet.get();
+	}
+
+	public ProductRulePlan planFor(Product product) {
+		return ruleSet.get().planFor(product);
+	}
+
+	public Eligibility checkEligibility(QuotationEngineReq request, LocalDate today) {
+		return planFor(request.getProduct())
+				.checkEligibility(request.getCustomer().getDob(), request.getPostCode(), today);
+	}
+
+	public double price(QuotationEngineReq request, LocalDate today) {
+		return planFor(request.getProduct())
+				.price(request.getCustomer().getDob(), request.getPostCode(), today);
+	}
+}
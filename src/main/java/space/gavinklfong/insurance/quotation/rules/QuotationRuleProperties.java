@@ -0,0 +1,46 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import space.gavinklfong.insurance.quotation.services.QuotationService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "app.quotation.rules")
+public class QuotationRuleProperties {
+
+	// customers below this age are not eligible for any product
+	private int minimumAge = QuotationService.CUSTOMER_ELIGIBLE_AGE;
+
+	// price factor by customer's age, the first matching band applies
+	private List<AgeBand> ageBands = new ArrayList<>();
+
+	// discount by customer's post code, applied on top of the product's own post code discount
+	private List<PostCodeDiscount> postCodeDiscounts = new ArrayList<>();
+
+	// surcharge rate by product class, e.g. Online: 0.05
+	private Map<String, Double> productClassSurcharges = new HashMap<>();
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class AgeBand {
+		private int minAge;
+		private int maxAge = Integer.MAX_VALUE;
+		private double factor = 1;
+	}
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class PostCodeDiscount {
+		private List<String> postCodes = new ArrayList<>();
+		private double rate;
+	}
+}
@@ -0,0 +1,96 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+import space.gavinklfong.insurance.quotation.models.PostCodeSet;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable rule set compiled from {@link QuotationRuleProperties}.
+ *
+ * Rules are flattened into primitive arrays once, and combined with each product into a
+ * {@link ProductRulePlan} on first use. Plans are cached per product code and recompiled
+ * only when the product information changes.
+ */
+public final class QuotationRuleSet {
+
+	// guards the plan cache against an unbounded number of product codes
+	private static final int MAX_CACHED_PLANS = 10_000;
+
+	private final long version;
+
+	final int minimumAge;
+
+	final int[] bandMinAges;
+	final int[] bandMaxAges;
+	final double[] bandFactors;
+
+	final PostCodeSet[] discountPostCodes;
+	final double[] discountRates;
+
+	private final Map<String, Double> productClassSurcharges;
+
+	private final ConcurrentMap<String, ProductRulePlan> plans = new ConcurrentHashMap<>();
+
+	private QuotationRuleSet(long version, QuotationRuleProperties properties) {
+		this.version = version;
+		this.minimumAge = properties.getMinimumAge();
+
+		List<QuotationRuleProperties.AgeBand> ageBands = properties.getAgeBands().stream()
+				.sorted(Comparator.comparingInt(QuotationRuleProperties.AgeBand::getMinAge))
+				.collect(Collectors.toList());
+		this.bandMinAges = ageBands.stream().mapToInt(QuotationRuleProperties.AgeBand::getMinAge).toArray();
+		this.bandMaxAges = ageBands.stream().mapToInt(QuotationRuleProperties.AgeBand::getMaxAge).toArray();
+		this.bandFactors = ageBands.stream().mapToDouble(QuotationRuleProperties.AgeBand::getFactor).toArray();
+
+		this.discountPostCodes = properties.getPostCodeDiscounts().stream()
+				.map(discount -> PostCodeSet.of(discount.getPostCodes().toArray(new String[0])))
+				.toArray(PostCodeSet[]::new);
+		this.discountRates = properties.getPostCodeDiscounts().stream()
+				.mapToDouble(QuotationRuleProperties.PostCodeDiscount::getRate)
+				.toArray();
+
+		this.productClassSurcharges = new HashMap<>(properties.getProductClassSurcharges());
+	}
+
+	public static QuotationRuleSet compile(long version, QuotationRuleProperties properties) {
+		return new QuotationRuleSet(version, properties);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public int getMinimumAge() {
+		return minimumAge;
+	}
+
+	public ProductRulePlan planFor(Product product) {
+		ProductRulePlan plan = plans.get(product.getProductCode());
+		if (plan != null && plan.isCompiledFrom(product)) {
+			return plan;
+		}
+
+		if (plans.size() >= MAX_CACHED_PLANS) {
+			plans.clear();
+		}
+
+		plan = new ProductRulePlan(this, product);
+		plans.put(product.getProductCode(), plan);
+		return plan;
+	}
+
+	double surchargeOf(String productClass) {
+		return productClass == null ? 0 : productClassSurcharges.getOrDefault(productClass, 0.0);
+	}
+
+	int cachedPlanCount() {
+		return plans.size();
+	}
+}
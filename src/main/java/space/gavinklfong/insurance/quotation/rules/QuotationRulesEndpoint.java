@@ -0,0 +1,53 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shows the active quotation rule set and reloads it from the current environment.
+ */
+@Component
+@Endpoint(id = "quotationrules")
+public class QuotationRulesEndpoint {
+
+	private static final String RULES_PREFIX = "app.quotation.rules";
+
+	private final QuotationRuleEngine ruleEngine;
+
+	private final Environment environment;
+
+	public QuotationRulesEndpoint(QuotationRuleEngine ruleEngine, Environment environment) {
+		this.ruleEngine = ruleEngine;
+		this.environment = environment;
+	}
+
+	@ReadOperation
+	public Map<String, Object> rules() {
+		return describe(ruleEngine.getRuleSet());
+	}
+
+	@WriteOperation
+	public Map<String, Object> reload() {
+		QuotationRuleProperties properties = Binder.get(environment)
+				.bind(RULES_PREFIX, QuotationRuleProperties.class)
+				.orElseGet(QuotationRuleProperties::new);
+		return describe(ruleEngine.reload(properties));
+	}
+
+	private Map<String, Object> describe(QuotationRuleSet ruleSet) {
+		Map<String, Object> description = new LinkedHashMap<>();
+		description.put("version", ruleSet.getVersion());
+		description.put("minimumAge", ruleSet.getMinimumAge());
+		description.put("ageBands", ruleSet.bandMinAges.length);
+		description.put("postCodeDiscounts", ruleSet.discountRates.length);
+		description.put("compiledProductPlans", ruleSet.cachedPlanCount());
+		return description;
+	}
+}
@@ -0,0 +1,56 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops retrying the downstream calls of a cancelled quotation request.
+ *
+ * A call of a cancelled request is not started, and a failed attempt is not retried, the last
+ * failure is thrown instead. Calls given up are counted in {@value #ABANDONED_COUNTER}. As a
+ * bean, it applies to every @Retryable and @CircuitBreaker method; retry templates built in
+ * code register it themselves.
+ */
+@Slf4j
+@Component
+public class CancellationRetryListener extends RetryListenerSupport {
+
+	static final String ABANDONED_COUNTER = "quotation.retries.abandoned";
+
+	private final MeterRegistry meterRegistry;
+
+	// retry listeners are created early on, before the meter registry is configured
+	public CancellationRetryListener(@Lazy MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+		if (QuotationCancellation.isCurrentCancelled()) {
+			meterRegistry.counter(ABANDONED_COUNTER).increment();
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+		if (QuotationCancellation.isCurrentCancelled()) {
+			context.setExhaustedOnly();
+		}
+	}
+
+	// counted once per call given up, whether the cancellation stopped an attempt, a backoff or a retry
+	@Override
+	public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+		if (throwable != null && QuotationCancellation.isCurrentCancelled()) {
+			log.debug("Quotation request cancelled, call given up after {} attempts: {}", context.getRetryCount(), throwable.toString());
+			meterRegistry.counter(ABANDONED_COUNTER).increment();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Consistent hash ring of nodes, each placed at a number of virtual points.
+ *
+ * A key belongs to the first node clockwise from the key's hash, so adding or removing a node
+ * only moves the keys of that node's share of the ring. Immutable, membership changes build a
+ * new ring.
+ */
+public final class ConsistentHashRing<N> {
+
+	private final TreeMap<Long, N> ring = new TreeMap<>();
+
+	private final int nodeCount;
+
+	public ConsistentHashRing(Collection<N> nodes, Function<N, String> nodeId, int virtualNodes) {
+		for (N node : nodes) {
+			String id = nodeId.apply(node);
+			for (int i = 0; i < virtualNodes; i++) {
+				ring.put(hash(id + "#" + i), node);
+			}
+		}
+		this.nodeCount = nodes.size();
+	}
+
+	public N nodeFor(String key) {
+		if (ring.isEmpty()) {
+			throw new IllegalStateException("No node in the hash ring");
+		}
+		Map.Entry<Long, N> entry = ring.ceilingEntry(hash(key));
+		return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+	}
+
+	/**
+	 * The owner of the key followed by the next distinct nodes clockwise, up to count nodes.
+	 */
+	public List<N> nodesFor(String key, int count) {
+		if (ring.isEmpty() || count <= 0) {
+			return Collections.emptyList();
+		}
+
+		int wanted = Math.min(count, nodeCount);
+		List<N> nodes = new ArrayList<>(wanted);
+		long hash = hash(key);
+		for (N node : ring.tailMap(hash, true).values()) {
+			if (nodes.size() == wanted) {
+				return nodes;
+			}
+			if (!nodes.contains(node)) {
+				nodes.add(node);
+			}
+		}
+		for (N node : ring.headMap(hash, false).values()) {
+			if (nodes.size() == wanted) {
+				return nodes;
+			}
+			if (!nodes.contains(node)) {
+				nodes.add(node);
+			}
+		}
+		return nodes;
+	}
+
+	public int size() {
+		return nodeCount;
+	}
+
+	// FNV-1a over UTF-8 bytes with a 64 bit finalizer, so that similar keys spread over the ring
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,98 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.dtos.ProductChange;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Product change feed read from a local file with one JSON {@link ProductChange} per line.
+ *
+ * A stand-in for the product service's change topic in local deployments and tests. The file is
+ * only parsed again when its size or modification time changes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.catalogue.changeFeed.type", havingValue = "file")
+public class FileProductChangeFeed implements ProductChangeFeed {
+
+	private final Path file;
+
+	private final ObjectMapper objectMapper;
+
+	private List<ProductChange> changes = Collections.emptyList();
+
+	private long fileSize = -1;
+
+	private FileTime lastModified;
+
+	@Autowired
+	public FileProductChangeFeed(@Value("${app.catalogue.changeFeed.file:./data/product-changes.jsonl}") String file,
+								 ObjectMapper objectMapper) {
+		this.file = Paths.get(file);
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public synchronized long latestVersion() {
+		List<ProductChange> current = read();
+		return current.isEmpty() ? 0 : current.get(current.size() - 1).getVersion();
+	}
+
+	@Override
+	public synchronized List<ProductChange> changesSince(long version, int maxChanges) {
+		List<ProductChange> current = read();
+		int from = 0;
+		while (from < current.size() && current.get(from).getVersion() <= version) {
+			from++;
+		}
+		return new ArrayList<>(current.subList(from, Math.min(current.size(), from + maxChanges)));
+	}
+
+	private List<ProductChange> read() {
+		try {
+			if (!Files.exists(file)) {
+				return Collections.emptyList();
+			}
+			long size = Files.size(file);
+			FileTime modified = Files.getLastModifiedTime(file);
+			if (size == fileSize && modified.equals(lastModified)) {
+				return changes;
+			}
+
+			List<ProductChange> parsed = new ArrayList<>();
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				if (line.isBlank()) {
+					continue;
+				}
+				ProductChange change = objectMapper.readValue(line, ProductChange.class);
+				if (!parsed.isEmpty() && change.getVersion() <= parsed.get(parsed.size() - 1).getVersion()) {
+					log.warn("Skip product change out of version order: version={}, productCode={}", change.getVersion(), change.getProductCode());
+					continue;
+				}
+				parsed.add(change);
+			}
+
+			changes = parsed;
+			fileSize = size;
+			lastModified = modified;
+			return changes;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Fail to read product change feed " + file, e);
+		}
+	}
+}
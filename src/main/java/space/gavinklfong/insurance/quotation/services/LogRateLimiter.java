@@ -0,0 +1,59 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free budget of log events per time window.
+ *
+ * Events over the budget are counted rather than logged, the count is reported with the next
+ * logged event so that sampling never hides how much was dropped.
+ */
+public class LogRateLimiter {
+
+	private final int maxEventsPerWindow;
+
+	private final long windowNanos;
+
+	private final LongSupplier nanoClock;
+
+	private final AtomicLong windowStart;
+
+	private final AtomicInteger eventsInWindow = new AtomicInteger();
+
+	private final LongAdder suppressed = new LongAdder();
+
+	public LogRateLimiter(int maxEventsPerSecond) {
+		this(maxEventsPerSecond, TimeUnit.SECONDS.toNanos(1), System::nanoTime);
+	}
+
+	LogRateLimiter(int maxEventsPerWindow, long windowNanos, LongSupplier nanoClock) {
+		this.maxEventsPerWindow = maxEventsPerWindow;
+		this.windowNanos = windowNanos;
+		this.nanoClock = nanoClock;
+		this.windowStart = new AtomicLong(nanoClock.getAsLong());
+	}
+
+	public boolean tryAcquire() {
+		long now = nanoClock.getAsLong();
+		long start = windowStart.get();
+		// only the thread which moves the window on resets the budget
+		if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+			eventsInWindow.set(0);
+		}
+
+		if (eventsInWindow.incrementAndGet() <= maxEventsPerWindow) {
+			return true;
+		}
+		suppressed.increment();
+		return false;
+	}
+
+	// number of events suppressed since the last call
+	public long drainSuppressed() {
+		return suppressed.sumThenReset();
+	}
+}
@@ -0,0 +1,76 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import space.gavinklfong.insurance.quotation.dtos.ProductChange;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable replica of the product catalogue as of a change feed version.
+ *
+ * Changes are applied to a copy, so a reader holding a catalogue never sees a partial update.
+ */
+public final class ProductCatalogue {
+
+	private final long version;
+
+	private final Map<String, Product> products;
+
+	private final LocalDateTime snapshotTime;
+
+	private ProductCatalogue(long version, Map<String, Product> products, LocalDateTime snapshotTime) {
+		this.version = version;
+		this.products = Collections.unmodifiableMap(products);
+		this.snapshotTime = snapshotTime;
+	}
+
+	public static ProductCatalogue of(long version, Collection<Product> products, LocalDateTime snapshotTime) {
+		Map<String, Product> productsByCode = new HashMap<>();
+		products.forEach(product -> productsByCode.put(product.getProductCode(), product));
+		return new ProductCatalogue(version, productsByCode, snapshotTime);
+	}
+
+	/**
+	 * Returns a new catalogue with the changes after this version applied in order.
+	 */
+	public ProductCatalogue apply(List<ProductChange> changes) {
+		Map<String, Product> productsByCode = new HashMap<>(products);
+		long appliedVersion = version;
+		for (ProductChange change : changes) {
+			// a snapshot may already contain changes which the feed replays afterwards
+			if (change.getVersion() <= appliedVersion) {
+				continue;
+			}
+			if (change.getProduct() == null) {
+				productsByCode.remove(change.getProductCode());
+			} else {
+				productsByCode.put(change.getProductCode(), change.getProduct());
+			}
+			appliedVersion = change.getVersion();
+		}
+		return new ProductCatalogue(appliedVersion, productsByCode, snapshotTime);
+	}
+
+	public Optional<Product> find(String productCode) {
+		return Optional.ofNullable(products.get(productCode));
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public int size() {
+		return products.size();
+	}
+
+	// time of the snapshot this catalogue started from
+	public LocalDateTime getSnapshotTime() {
+		return snapshotTime;
+	}
+}
@@ -0,0 +1,169 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.apiclients.ProductSrvClient;
+import space.gavinklfong.insurance.quotation.dtos.ProductChange;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a local replica of the product catalogue, so that quotations need no product lookups.
+ *
+ * The replica starts from a snapshot of all products and then follows the change feed, if any.
+ * The feed position is read before the snapshot is taken, so replaying the feed from there
+ * cannot miss a change made while the snapshot was in flight. Each sync builds a new immutable
+ * {@link ProductCatalogue} and swaps it in atomically. A full snapshot is taken again every
+ * snapshotInterval to repair any drift, which is the only refresh when there is no change feed.
+ *
+ * An empty snapshot, or one with far fewer products than the current catalogue, is taken for a
+ * product service failure and rejected, the current catalogue is kept. A failed or rejected
+ * snapshot is retried after snapshotRetryInterval, doubled on each failure, and the change feed
+ * is followed meanwhile. As a consequence, withdrawing most products at once without a change
+ * feed requires a restart.
+ */
+@Slf4j
+@Component
+public class ProductCatalogueSync {
+
+	private final AtomicReference<ProductCatalogue> catalogue = new AtomicReference<>();
+
+	private final ProductSrvClient productSrvClient;
+
+	private final ProductChangeFeed changeFeed;
+
+	private final Duration snapshotInterval;
+
+	private final Duration snapshotRetryInterval;
+
+	private final double minSnapshotRatio;
+
+	private final int maxChangesPerPoll;
+
+	private final Clock clock;
+
+	// only the sync thread reads and writes the retry state
+	private LocalDateTime nextSnapshotAttempt = LocalDateTime.MIN;
+
+	private int failedSnapshots;
+
+	private final ScheduledExecutorService syncer;
+
+	@Autowired
+	public ProductCatalogueSync(ProductSrvClient productSrvClient,
+								Optional<ProductChangeFeed> changeFeed,
+								MeterRegistry meterRegistry,
+								@Value("${app.catalogue.sync.enabled:false}") boolean enabled,
+								@Value("${app.catalogue.sync.pollInterval:1000}") long pollIntervalMillis,
+								@Value("${app.catalogue.sync.snapshotInterval:3600}") long snapshotIntervalSeconds,
+								@Value("${app.catalogue.sync.snapshotRetryInterval:30}") long snapshotRetryIntervalSeconds,
+								@Value("${app.catalogue.sync.minSnapshotRatio:0.5}") double minSnapshotRatio,
+								@Value("${app.catalogue.sync.maxChangesPerPoll:1000}") int maxChangesPerPoll,
+								Clock clock) {
+		this.productSrvClient = productSrvClient;
+		this.changeFeed = changeFeed.orElse(null);
+		this.snapshotInterval = Duration.ofSeconds(snapshotIntervalSeconds);
+		this.snapshotRetryInterval = Duration.ofSeconds(snapshotRetryIntervalSeconds);
+		this.minSnapshotRatio = minSnapshotRatio;
+		this.maxChangesPerPoll = maxChangesPerPoll;
+		this.clock = clock;
+
+		Gauge.builder("product.catalogue.version", this, sync -> sync.getCatalogue().map(ProductCatalogue::getVersion).orElse(-1L))
+				.register(meterRegistry);
+		Gauge.builder("product.catalogue.size", this, sync -> sync.getCatalogue().map(ProductCatalogue::size).orElse(0))
+				.register(meterRegistry);
+
+		this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "product-catalogue-sync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (enabled) {
+			syncer.scheduleWithFixedDelay(this::syncQuietly, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * The current replica, empty until the first snapshot is loaded.
+	 */
+	public Optional<ProductCatalogue> getCatalogue() {
+		return Optional.ofNullable(catalogue.get());
+	}
+
+	@PreDestroy
+	public void close() {
+		syncer.shutdownNow();
+	}
+
+	void sync() {
+		ProductCatalogue current = catalogue.get();
+		LocalDateTime now = LocalDateTime.now(clock);
+		if (current != null && changeFeed != null) {
+			current = applyChanges(current);
+		}
+		boolean snapshotDue = current == null || !current.getSnapshotTime().plus(snapshotInterval).isAfter(now);
+		if (snapshotDue && !now.isBefore(nextSnapshotAttempt)) {
+			try {
+				loadSnapshot(current, now);
+				failedSnapshots = 0;
+			} catch (RuntimeException e) {
+				failedSnapshots++;
+				Duration backoff = snapshotRetryInterval.multipliedBy(1L << Math.min(failedSnapshots - 1, 16));
+				nextSnapshotAttempt = now.plus(backoff.compareTo(snapshotInterval) > 0 ? snapshotInterval : backoff);
+				throw e;
+			}
+		}
+	}
+
+	private void loadSnapshot(ProductCatalogue current, LocalDateTime now) {
+		long version = changeFeed == null ? 0 : changeFeed.latestVersion();
+		List<Product> products = productSrvClient.getProducts();
+		if (products.isEmpty() || (current != null && products.size() < current.size() * minSnapshotRatio)) {
+			throw new IllegalStateException(String.format("Product catalogue snapshot rejected: products=%d, current=%d",
+					products.size(), current == null ? 0 : current.size()));
+		}
+
+		ProductCatalogue snapshot = ProductCatalogue.of(version, products, now);
+		if (changeFeed != null) {
+			snapshot = snapshot.apply(changeFeed.changesSince(version, maxChangesPerPoll));
+		}
+		catalogue.set(snapshot);
+		log.info("Product catalogue snapshot loaded: version={}, products={}", snapshot.getVersion(), snapshot.size());
+	}
+
+	private ProductCatalogue applyChanges(ProductCatalogue current) {
+		List<ProductChange> changes = changeFeed.changesSince(current.getVersion(), maxChangesPerPoll);
+		if (changes.isEmpty()) {
+			return current;
+		}
+
+		// only this thread writes the catalogue, readers see either version in full
+		ProductCatalogue updated = current.apply(changes);
+		catalogue.set(updated);
+		log.debug("Product catalogue updated: version={}, changes={}, products={}", updated.getVersion(), changes.size(), updated.size());
+		return updated;
+	}
+
+	private void syncQuietly() {
+		try {
+			sync();
+		} catch (RuntimeException e) {
+			log.warn("Fail to sync product catalogue, keep version {}: {}",
+					getCatalogue().map(ProductCatalogue::getVersion).orElse(-1L), e.toString());
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import space.gavinklfong.insurance.quotation.dtos.ProductChange;
+
+import java.util.List;
+
+/**
+ * Source of product catalogue changes, e.g. a message queue topic of the product service.
+ */
+public interface ProductChangeFeed {
+
+	/**
+	 * Version of the latest change. A snapshot taken afterwards includes at least the changes up to it.
+	 */
+	long latestVersion();
+
+	/**
+	 * Changes after the given version in version order, at most maxChanges of them.
+	 */
+	List<ProductChange> changesSince(long version, int maxChanges);
+}
@@ -0,0 +1,213 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.rules.Eligibility;
+import space.gavinklfong.insurance.quotation.rules.PostCodeDiscount;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counts and amounts of generated quotations by product code and post code discount, and
+ * of rejections by reason, since start and over a sliding window.
+ *
+ * Aggregates are updated on the request path with striped adders, so concurrent requests do
+ * not contend on a counter and no request takes a lock. The window is a ring of time buckets,
+ * a bucket is replaced by a fresh one when its time slot comes round again. Product codes
+ * beyond maxKeys are counted as {@value #OTHER}.
+ */
+@Component
+public class QuotationAnalytics {
+
+	static final String OTHER = "other";
+
+	private final ConcurrentMap<String, Series> products = new ConcurrentHashMap<>();
+
+	private final Map<PostCodeDiscount, Series> discounts = new EnumMap<>(PostCodeDiscount.class);
+
+	private final Map<Eligibility, Series> rejections = new EnumMap<>(Eligibility.class);
+
+	private final boolean enabled;
+
+	private final int buckets;
+
+	private final long bucketMillis;
+
+	private final int maxKeys;
+
+	private final Clock clock;
+
+	@Autowired
+	public QuotationAnalytics(@Value("${app.quotation.analytics.enabled:true}") boolean enabled,
+							  @Value("${app.quotation.analytics.window:3600}") long windowSeconds,
+							  @Value("${app.quotation.analytics.buckets:60}") int buckets,
+							  @Value("${app.quotation.analytics.maxKeys:1000}") int maxKeys,
+							  Clock clock) {
+		this.enabled = enabled;
+		this.buckets = buckets;
+		this.bucketMillis = Math.max(Duration.ofSeconds(windowSeconds).toMillis() / buckets, 1);
+		this.maxKeys = maxKeys;
+		this.clock = clock;
+
+		for (PostCodeDiscount discount : PostCodeDiscount.values()) {
+			discounts.put(discount, new Series());
+		}
+		for (Eligibility reason : Eligibility.values()) {
+			if (reason != Eligibility.ELIGIBLE) {
+				rejections.put(reason, new Series());
+			}
+		}
+	}
+
+	public void generated(Quotation quotation, PostCodeDiscount discount) {
+		if (!enabled) {
+			return;
+		}
+		long slot = currentSlot();
+		double amount = quotation.getAmount() == null ? 0 : quotation.getAmount();
+		productSeries(quotation.getProductCode()).add(slot, amount);
+		discounts.get(discount).add(slot, amount);
+	}
+
+	public void rejected(Eligibility reason) {
+		if (!enabled || reason == null || !rejections.containsKey(reason)) {
+			return;
+		}
+		rejections.get(reason).add(currentSlot(), 0);
+	}
+
+	public Duration getWindow() {
+		return Duration.ofMillis(bucketMillis * buckets);
+	}
+
+	public Map<String, Aggregate> getProducts(boolean windowed) {
+		Map<String, Aggregate> aggregates = new TreeMap<>();
+		long slot = currentSlot();
+		products.forEach((productCode, series) -> aggregates.put(productCode, series.aggregate(slot, windowed)));
+		return aggregates;
+	}
+
+	public Map<PostCodeDiscount, Aggregate> getDiscounts(boolean windowed) {
+		return aggregate(discounts, windowed);
+	}
+
+	public Map<Eligibility, Aggregate> getRejections(boolean windowed) {
+		return aggregate(rejections, windowed);
+	}
+
+	private <K> Map<K, Aggregate> aggregate(Map<K, Series> series, boolean windowed) {
+		Map<K, Aggregate> aggregates = new LinkedHashMap<>();
+		long slot = currentSlot();
+		series.forEach((key, value) -> aggregates.put(key, value.aggregate(slot, windowed)));
+		return Collections.unmodifiableMap(aggregates);
+	}
+
+	private Series productSeries(String productCode) {
+		String key = productCode == null ? OTHER : productCode;
+		Series series = products.get(key);
+		if (series != null) {
+			return series;
+		}
+		if (products.size() >= maxKeys) {
+			key = OTHER;
+		}
+		return products.computeIfAbsent(key, code -> new Series());
+	}
+
+	private long currentSlot() {
+		return clock.millis() / bucketMillis;
+	}
+
+	/**
+	 * Count and total amount since start, and over the buckets of the window.
+	 */
+	private class Series {
+
+		private final LongAdder count = new LongAdder();
+
+		private final DoubleAdder amount = new DoubleAdder();
+
+		private final AtomicReferenceArray<Bucket> window = new AtomicReferenceArray<>(buckets);
+
+		void add(long slot, double value) {
+			count.increment();
+			amount.add(value);
+
+			int index = (int) (slot % buckets);
+			Bucket bucket = window.get(index);
+			if (bucket == null || bucket.slot != slot) {
+				// an add racing with the replacement may land in the old bucket, which is acceptable for analytics
+				Bucket fresh = new Bucket(slot);
+				bucket = window.compareAndSet(index, bucket, fresh) ? fresh : window.get(index);
+			}
+			bucket.count.increment();
+			bucket.amount.add(value);
+		}
+
+		Aggregate aggregate(long slot, boolean windowed) {
+			if (!windowed) {
+				return new Aggregate(count.sum(), amount.sum());
+			}
+			long windowCount = 0;
+			double windowAmount = 0;
+			for (int i = 0; i < buckets; i++) {
+				Bucket bucket = window.get(i);
+				if (bucket != null && bucket.slot > slot - buckets && bucket.slot <= slot) {
+					windowCount += bucket.count.sum();
+					windowAmount += bucket.amount.sum();
+				}
+			}
+			return new Aggregate(windowCount, windowAmount);
+		}
+	}
+
+	private static class Bucket {
+
+		private final long slot;
+
+		private final LongAdder count = new LongAdder();
+
+		private final DoubleAdder amount = new DoubleAdder();
+
+		Bucket(long slot) {
+			this.slot = slot;
+		}
+	}
+
+	public static class Aggregate {
+
+		private final long count;
+
+		private final double totalAmount;
+
+		Aggregate(long count, double totalAmount) {
+			this.count = count;
+			this.totalAmount = totalAmount;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getTotalAmount() {
+			return totalAmount;
+		}
+
+		public double getAverageAmount() {
+			return count == 0 ? 0 : totalAmount / count;
+		}
+	}
+}
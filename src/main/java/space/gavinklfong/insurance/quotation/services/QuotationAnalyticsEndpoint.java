@@ -0,0 +1,44 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.rules.Eligibility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Quotations by product code and post code discount and rejections by reason, since start and
+ * over the recent window, from the in-memory aggregates rather than the quotation table.
+ */
+@Component
+@Endpoint(id = "quotationanalytics")
+public class QuotationAnalyticsEndpoint {
+
+	private final QuotationAnalytics analytics;
+
+	public QuotationAnalyticsEndpoint(QuotationAnalytics analytics) {
+		this.analytics = analytics;
+	}
+
+	@ReadOperation
+	public Map<String, Object> analytics() {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("windowSeconds", analytics.getWindow().getSeconds());
+		summary.put("window", describe(true));
+		summary.put("total", describe(false));
+		return summary;
+	}
+
+	private Map<String, Object> describe(boolean windowed) {
+		Map<Eligibility, Long> rejections = new LinkedHashMap<>();
+		analytics.getRejections(windowed).forEach((reason, aggregate) -> rejections.put(reason, aggregate.getCount()));
+
+		Map<String, Object> description = new LinkedHashMap<>();
+		description.put("products", analytics.getProducts(windowed));
+		description.put("discounts", analytics.getDiscounts(windowed));
+		description.put("rejections", rejections);
+		return description;
+	}
+}
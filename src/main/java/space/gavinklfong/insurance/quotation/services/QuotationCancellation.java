@@ -0,0 +1,75 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cancellation of a quotation request nobody waits for any more, e.g. its client disconnected.
+ *
+ * The request runs bound to the thread running it. Cancelling interrupts the thread, which cancels
+ * the downstream call or the retry backoff in progress, and marks the request cancelled, so that
+ * the retries of its downstream calls stop (see {@link CancellationRetryListener}).
+ */
+public class QuotationCancellation {
+
+	private static final ThreadLocal<QuotationCancellation> CURRENT = new ThreadLocal<>();
+
+	private boolean cancelled;
+
+	private boolean finished;
+
+	private Thread thread;
+
+	/**
+	 * Whether the request run by the current thread is cancelled, false outside of a request.
+	 */
+	public static boolean isCurrentCancelled() {
+		QuotationCancellation current = CURRENT.get();
+		return current != null && current.isCancelled();
+	}
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Cancels the request if it is waiting to run or running, returns false if it has finished
+	 * or is cancelled already.
+	 */
+	public synchronized boolean cancel() {
+		if (cancelled || finished) {
+			return false;
+		}
+		cancelled = true;
+		if (thread != null) {
+			thread.interrupt();
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the request on the current thread, unless it was cancelled before it started.
+	 */
+	public <T> T run(Callable<T> request) throws Exception {
+		synchronized (this) {
+			if (cancelled) {
+				throw new CancellationException("Quotation request cancelled before it started");
+			}
+			thread = Thread.currentThread();
+		}
+		CURRENT.set(this);
+		try {
+			return request.call();
+		} finally {
+			CURRENT.remove();
+			synchronized (this) {
+				thread = null;
+				finished = true;
+				if (cancelled) {
+					// an interrupt the request did not consume must not reach the next task of the thread
+					Thread.interrupted();
+				}
+			}
+		}
+	}
+}
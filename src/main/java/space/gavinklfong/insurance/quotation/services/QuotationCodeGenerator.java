@@ -0,0 +1,42 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.QuotationCode;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates {@link QuotationCode}s of this node, spreading the quotations evenly over the shards.
+ */
+@Component
+public class QuotationCodeGenerator {
+
+	private final int shards;
+
+	private final int node;
+
+	private final Clock clock;
+
+	@Autowired
+	public QuotationCodeGenerator(@Value("${app.quotation.store.sharded.shards:1}") int shards,
+								  @Value("${app.quotation.code.node:0}") int node,
+								  Clock clock) {
+		if (shards < 1 || shards > QuotationCode.MAX_SHARDS) {
+			throw new IllegalArgumentException("Number of shards must be within 1 and " + QuotationCode.MAX_SHARDS);
+		}
+		if (node < 0 || node >= QuotationCode.MAX_NODES) {
+			throw new IllegalArgumentException("Node must be within 0 and " + (QuotationCode.MAX_NODES - 1));
+		}
+		this.shards = shards;
+		this.node = node;
+		this.clock = clock;
+	}
+
+	public String next() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return QuotationCode.generate(random.nextInt(shards), node, clock.millis(), random.nextLong());
+	}
+}
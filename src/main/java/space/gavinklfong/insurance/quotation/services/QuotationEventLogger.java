@@ -0,0 +1,59 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+/**
+ * Structured (key=value) log of quotation events on a dedicated logger.
+ *
+ * The events are logged on every request, so they are rate limited to keep the logging cost
+ * bounded regardless of the request rate. Each logged event carries the number of events
+ * suppressed before it.
+ */
+@Component
+public class QuotationEventLogger {
+
+	static final String LOGGER_NAME = "space.gavinklfong.insurance.quotation.events";
+
+	private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+	private final LogRateLimiter rateLimiter;
+
+	@Autowired
+	public QuotationEventLogger(@Value("${app.logging.quotationEvents.maxPerSecond:100}") int maxEventsPerSecond) {
+		this(new LogRateLimiter(maxEventsPerSecond));
+	}
+
+	QuotationEventLogger(LogRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	public void generated(Quotation quotation) {
+		if (log.isInfoEnabled() && rateLimiter.tryAcquire()) {
+			log.info("event=quotation.generated quotationCode={} customerId={} productCode={} amount={} expiryTime={} suppressed={}",
+					quotation.getQuotationCode(), quotation.getCustomerId(), quotation.getProductCode(),
+					quotation.getAmount(), quotation.getExpiryTime(), rateLimiter.drainSuppressed());
+		}
+	}
+
+	public void reused(Quotation quotation) {
+		if (log.isInfoEnabled() && rateLimiter.tryAcquire()) {
+			log.info("event=quotation.reused quotationCode={} customerId={} productCode={} suppressed={}",
+					quotation.getQuotationCode(), quotation.getCustomerId(), quotation.getProductCode(),
+					rateLimiter.drainSuppressed());
+		}
+	}
+
+	public void rejected(QuotationReq request, String reason) {
+		if (log.isInfoEnabled() && rateLimiter.tryAcquire()) {
+			log.info("event=quotation.rejected customerId={} productCode={} postCode={} reason=\"{}\" suppressed={}",
+					request.getCustomerId(), request.getProductCode(), request.getPostCode(), reason,
+					rateLimiter.drainSuppressed());
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The most recently generated quotations, in a ring buffer of fixed size, for the quotation stream.
+ *
+ * Each quotation gets the next sequence number. Event ids carry the id of the feed as well, which
+ * changes on restart, so a consumer resuming with an id of an earlier run replays all the buffered
+ * quotations instead of skipping by a stale sequence number.
+ */
+@Component
+public class QuotationFeed {
+
+	private final Event[] buffer;
+
+	private final String feedId;
+
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+	// guarded by this
+	private long lastSequence;
+
+	@Autowired
+	public QuotationFeed(@Value("${app.quotation.stream.bufferSize:10000}") int bufferSize, Clock clock) {
+		this(bufferSize, Long.toString(clock.millis(), 36));
+	}
+
+	QuotationFeed(int bufferSize, String feedId) {
+		this.buffer = new Event[bufferSize];
+		this.feedId = feedId;
+	}
+
+	public void publish(Quotation quotation) {
+		synchronized (this) {
+			lastSequence++;
+			buffer[(int) (lastSequence % buffer.length)] = new Event(feedId + "-" + lastSequence, lastSequence, quotation);
+		}
+		listeners.forEach(Runnable::run);
+	}
+
+	/**
+	 * The buffered events after the given sequence number, oldest first.
+	 */
+	public synchronized List<Event> since(long sequence, int maxEvents) {
+		long from = Math.max(sequence, oldestSequence() - 1) + 1;
+		long to = Math.min(lastSequence, from + maxEvents - 1);
+		List<Event> events = new ArrayList<>((int) Math.max(to - from + 1, 0));
+		for (long next = from; next <= to; next++) {
+			events.add(buffer[(int) (next % buffer.length)]);
+		}
+		return events;
+	}
+
+	public synchronized long getLastSequence() {
+		return lastSequence;
+	}
+
+	public synchronized long getOldestSequence() {
+		return oldestSequence();
+	}
+
+	/**
+	 * The sequence number to resume after, the one before the oldest buffered event if the id is
+	 * not of this feed or its event is no longer buffered.
+	 */
+	public synchronized long resumeAfter(String lastEventId) {
+		long oldest = oldestSequence() - 1;
+		String prefix = feedId + "-";
+		if (lastEventId == null || !lastEventId.startsWith(prefix)) {
+			return oldest;
+		}
+		try {
+			long sequence = Long.parseLong(lastEventId.substring(prefix.length()));
+			return sequence < oldest || sequence > lastSequence ? oldest : sequence;
+		} catch (NumberFormatException e) {
+			return oldest;
+		}
+	}
+
+	// called on the publishing thread after each quotation
+	public void addListener(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	private long oldestSequence() {
+		return Math.max(lastSequence - buffer.length + 1, 1);
+	}
+
+	public static class Event {
+
+		private final String id;
+
+		private final long sequence;
+
+		private final Quotation quotation;
+
+		Event(String id, long sequence, Quotation quotation) {
+			this.id = id;
+			this.sequence = sequence;
+			this.quotation = quotation;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public Quotation getQuotation() {
+			return quotation;
+		}
+	}
+}
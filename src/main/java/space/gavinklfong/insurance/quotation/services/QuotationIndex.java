@@ -0,0 +1,206 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.IdempotencyKeyReusedException;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.OffHeapQuotationIndex;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory index of recently generated, unexpired quotations.
+ *
+ * Quotations are indexed by (customerId, productCode, postCode) so that a repeated request
+ * can be answered without regenerating, and by client supplied idempotency key so that
+ * client retries return the quotation of the first attempt. A key is bound to the request it
+ * was first used with, reusing it for another request is refused. Both indexes hold at most
+ * maxEntries, beyond that a quotation is not indexed and a new key is refused until keys expire.
+ *
+ * With the off-heap index enabled, reusable quotations are held there and only their codes are
+ * kept by request here.
+ */
+@Slf4j
+@Component
+public class QuotationIndex {
+
+	private final ConcurrentMap<RequestKey, Quotation> quotationsByRequest = new ConcurrentHashMap<>();
+
+	// instead of quotationsByRequest with the off-heap index
+	private final ConcurrentMap<RequestKey, String> codesByRequest = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, IdempotentRequest> quotationsByIdempotencyKey = new ConcurrentHashMap<>();
+
+	private final boolean reuseEnabled;
+
+	private final long minRemainingMinutes;
+
+	private final int maxEntries;
+
+	private final OffHeapQuotationIndex activeQuotations;
+
+	private final Clock clock;
+
+	@Autowired
+	public QuotationIndex(@Value("${app.quotation.reuse.enabled:false}") boolean reuseEnabled,
+						  @Value("${app.quotation.reuse.minRemainingTime:5}") long minRemainingMinutes,
+						  @Value("${app.quotation.reuse.maxEntries:100000}") int maxEntries,
+						  OffHeapQuotationIndex activeQuotations,
+						  Clock clock) {
+		this.reuseEnabled = reuseEnabled;
+		this.minRemainingMinutes = minRemainingMinutes;
+		this.maxEntries = maxEntries;
+		this.activeQuotations = activeQuotations;
+		this.clock = clock;
+	}
+
+	public QuotationIndex(boolean reuseEnabled, long minRemainingMinutes, int maxEntries, Clock clock) {
+		this(reuseEnabled, minRemainingMinutes, maxEntries, new OffHeapQuotationIndex(false, 0, clock), clock);
+	}
+
+	public Optional<Quotation> findReusable(QuotationReq request) {
+		if (!reuseEnabled) {
+			return Optional.empty();
+		}
+
+		RequestKey requestKey = RequestKey.of(request);
+		Optional<Quotation> quotation = find(requestKey);
+		if (quotation.isEmpty()) {
+			return Optional.empty();
+		}
+
+		// only reuse a quotation which stays valid long enough for the customer to act on it
+		if (quotation.get().getExpiryTime().isBefore(LocalDateTime.now(clock).plusMinutes(minRemainingMinutes))) {
+			quotationsByRequest.remove(requestKey, quotation.get());
+			codesByRequest.remove(requestKey, quotation.get().getQuotationCode());
+			return Optional.empty();
+		}
+
+		return quotation;
+	}
+
+	public void index(QuotationReq request, Quotation quotation) {
+		if (!reuseEnabled) {
+			return;
+		}
+
+		if (size() >= maxEntries) {
+			purgeExpired();
+			if (size() >= maxEntries) {
+				log.debug("Quotation index is full, skip indexing quotation {}", quotation.getQuotationCode());
+				return;
+			}
+		}
+
+		if (activeQuotations.isEnabled()) {
+			// added to the off-heap index on saving
+			codesByRequest.put(RequestKey.of(request), quotation.getQuotationCode());
+		} else {
+			quotationsByRequest.put(RequestKey.of(request), quotation);
+		}
+	}
+
+	/**
+	 * Claims the idempotency key with the result of the calling request.
+	 *
+	 * Returns empty if the caller now owns the key, in which case it must complete the claim
+	 * or release the key. Otherwise returns the result of the request which claimed the key
+	 * first, which may still be in progress.
+	 */
+	public Optional<CompletableFuture<Quotation>> claim(QuotationReq request, String idempotencyKey, CompletableFuture<Quotation> claim)
+			throws IdempotencyKeyReusedException, RateLimitExceededException {
+		String scopedKey = scope(request.getCustomerId(), idempotencyKey);
+		RequestKey requestKey = RequestKey.of(request);
+
+		IdempotentRequest previous = quotationsByIdempotencyKey.get(scopedKey);
+		if (previous == null) {
+			if (quotationsByIdempotencyKey.size() >= maxEntries) {
+				purgeExpired();
+				if (quotationsByIdempotencyKey.size() >= maxEntries) {
+					throw new RateLimitExceededException("Too many idempotency keys in use", 1);
+				}
+			}
+			previous = quotationsByIdempotencyKey.putIfAbsent(scopedKey, new IdempotentRequest(requestKey, claim));
+		}
+
+		if (previous == null) {
+			return Optional.empty();
+		}
+		if (!previous.request.equals(requestKey)) {
+			throw new IdempotencyKeyReusedException("Idempotency key already used with a different request");
+		}
+		return Optional.of(previous.result);
+	}
+
+	// a failed request gives up its key, so that the client can retry with the same key
+	public void release(Long customerId, String idempotencyKey, CompletableFuture<Quotation> claim) {
+		quotationsByIdempotencyKey.computeIfPresent(scope(customerId, idempotencyKey),
+				(key, idempotentRequest) -> idempotentRequest.result == claim ? null : idempotentRequest);
+	}
+
+	public void purgeExpired() {
+		LocalDateTime now = LocalDateTime.now(clock);
+		quotationsByRequest.values().removeIf(quotation -> quotation.getExpiryTime().isBefore(now));
+		// expired or dropped quotations are not found in the off-heap index
+		codesByRequest.values().removeIf(quotationCode -> activeQuotations.find(quotationCode).isEmpty());
+		quotationsByIdempotencyKey.values().removeIf(idempotentRequest -> idempotentRequest.result.isDone()
+				&& !idempotentRequest.result.isCompletedExceptionally()
+				&& idempotentRequest.result.join().getExpiryTime().isBefore(now));
+	}
+
+	int size() {
+		return quotationsByRequest.size() + codesByRequest.size();
+	}
+
+	private Optional<Quotation> find(RequestKey requestKey) {
+		if (!activeQuotations.isEnabled()) {
+			return Optional.ofNullable(quotationsByRequest.get(requestKey));
+		}
+
+		String quotationCode = codesByRequest.get(requestKey);
+		if (quotationCode == null) {
+			return Optional.empty();
+		}
+		Optional<Quotation> quotation = activeQuotations.find(quotationCode);
+		if (quotation.isEmpty()) {
+			codesByRequest.remove(requestKey, quotationCode);
+		}
+		return quotation;
+	}
+
+	// idempotency keys are only unique per client, scope them by customer
+	private static String scope(Long customerId, String idempotencyKey) {
+		return customerId + ":" + idempotencyKey;
+	}
+
+	@AllArgsConstructor
+	private static class IdempotentRequest {
+		private final RequestKey request;
+		private final CompletableFuture<Quotation> result;
+	}
+
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	static class RequestKey {
+		private final Long customerId;
+		private final String productCode;
+		private final String postCode;
+
+		static RequestKey of(QuotationReq request) {
+			return new RequestKey(request.getCustomerId(), request.getProductCode(),
+					request.getPostCode() == null ? null : request.getPostCode().toUpperCase(Locale.ROOT));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A quotation generated in the background, polled by the client with the job id.
+ */
+public class QuotationJob {
+
+	private final String id;
+
+	private final QuotationReq request;
+
+	private final LocalDateTime createdTime;
+
+	private final CompletableFuture<Quotation> result = new CompletableFuture<>();
+
+	private volatile boolean started;
+
+	private volatile LocalDateTime completedTime;
+
+	QuotationJob(String id, QuotationReq request, LocalDateTime createdTime) {
+		this.id = id;
+		this.request = request;
+		this.createdTime = createdTime;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public QuotationReq getRequest() {
+		return request;
+	}
+
+	public LocalDateTime getCreatedTime() {
+		return createdTime;
+	}
+
+	public LocalDateTime getCompletedTime() {
+		return completedTime;
+	}
+
+	public QuotationJobStatus getStatus() {
+		if (result.isCompletedExceptionally()) {
+			return QuotationJobStatus.FAILED;
+		} else if (result.isDone()) {
+			return QuotationJobStatus.COMPLETED;
+		}
+		return started ? QuotationJobStatus.RUNNING : QuotationJobStatus.PENDING;
+	}
+
+	/**
+	 * Completes with the quotation, or exceptionally with the failure of the generation.
+	 */
+	public CompletableFuture<Quotation> getResult() {
+		return result;
+	}
+
+	// the failure of a failed job, null otherwise
+	public Throwable getFailure() {
+		if (!result.isCompletedExceptionally()) {
+			return null;
+		}
+		try {
+			result.join();
+			return null;
+		} catch (CompletionException e) {
+			return e.getCause();
+		}
+	}
+
+	void start() {
+		started = true;
+	}
+
+	void complete(Quotation quotation, LocalDateTime now) {
+		completedTime = now;
+		result.complete(quotation);
+	}
+
+	void fail(Throwable failure, LocalDateTime now) {
+		completedTime = now;
+		result.completeExceptionally(failure);
+	}
+}
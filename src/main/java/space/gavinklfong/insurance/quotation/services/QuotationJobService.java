@@ -0,0 +1,170 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.IdempotencyKeyReusedException;
+import space.gavinklfong.insurance.quotation.exceptions.QuotationCriteriaNotFulfilledException;
+import space.gavinklfong.insurance.quotation.exceptions.QuotationJobRejectedException;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
+import space.gavinklfong.insurance.quotation.exceptions.RecordNotFoundException;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates quotations in the background for clients which poll for the result.
+ *
+ * Jobs run on a fixed pool of workers behind a bounded queue, so a burst of requests is queued
+ * rather than holding a request thread each, and is rejected once the queue is full. Rate limits
+ * are checked on submission of a job the queue has room for. A finished job is kept for the
+ * retention period to be polled, an unfinished one for the retention period after its submission.
+ */
+@Slf4j
+@Component
+public class QuotationJobService {
+
+	static final String QUEUED_GAUGE = "quotation.jobs.queued";
+
+	static final String REJECTED_COUNTER = "quotation.jobs.rejected";
+
+	private final ConcurrentMap<String, QuotationJob> jobs = new ConcurrentHashMap<>();
+
+	private final QuotationService quotationService;
+
+	private final QuotationRateLimiter rateLimiter;
+
+	private final Duration retention;
+
+	private final int maxEntries;
+
+	private final Clock clock;
+
+	private final ThreadPoolExecutor workers;
+
+	private final Counter rejected;
+
+	@Autowired
+	public QuotationJobService(QuotationService quotationService,
+							   QuotationRateLimiter rateLimiter,
+							   MeterRegistry meterRegistry,
+							   @Value("${app.quotation.jobs.workers:8}") int workers,
+							   @Value("${app.quotation.jobs.queueCapacity:1000}") int queueCapacity,
+							   @Value("${app.quotation.jobs.retention:600}") long retentionSeconds,
+							   @Value("${app.quotation.jobs.maxEntries:100000}") int maxEntries,
+							   Clock clock) {
+		this.quotationService = quotationService;
+		this.rateLimiter = rateLimiter;
+		this.retention = Duration.ofSeconds(retentionSeconds);
+		this.maxEntries = maxEntries;
+		this.clock = clock;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "quotation-job-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		Gauge.builder(QUEUED_GAUGE, this.workers, executor -> executor.getQueue().size()).register(meterRegistry);
+		this.rejected = meterRegistry.counter(REJECTED_COUNTER);
+	}
+
+	/**
+	 * Queues the generation of a quotation, subject to the customer's and the partner's rate limits.
+	 */
+	public QuotationJob submit(QuotationReq request, String idempotencyKey, String partnerKey) throws RateLimitExceededException, QuotationJobRejectedException {
+		if (jobs.size() >= maxEntries) {
+			purgeExpired();
+			if (jobs.size() >= maxEntries) {
+				rejected.increment();
+				throw new QuotationJobRejectedException("Too many quotation jobs", 1);
+			}
+		}
+
+		// a rejected job must not use up the rate limits of its customer and partner
+		if (workers.getQueue().remainingCapacity() == 0) {
+			throw queueFull();
+		}
+		rateLimiter.acquire(request.getCustomerId(), partnerKey);
+
+		QuotationJob job = new QuotationJob(UUID.randomUUID().toString(), request, LocalDateTime.now(clock));
+		jobs.put(job.getId(), job);
+		try {
+			workers.execute(() -> run(job, idempotencyKey));
+		} catch (RejectedExecutionException e) {
+			jobs.remove(job.getId(), job);
+			throw queueFull();
+		}
+		log.debug("Quotation job {} queued for customer {}", job.getId(), request.getCustomerId());
+		return job;
+	}
+
+	public Optional<QuotationJob> getJob(String jobId) {
+		QuotationJob job = jobs.get(jobId);
+		if (job != null && isExpired(job, LocalDateTime.now(clock))) {
+			jobs.remove(jobId, job);
+			return Optional.empty();
+		}
+		return Optional.ofNullable(job);
+	}
+
+	public void purgeExpired() {
+		LocalDateTime now = LocalDateTime.now(clock);
+		jobs.values().removeIf(job -> isExpired(job, now));
+	}
+
+	int size() {
+		return jobs.size();
+	}
+
+	@PreDestroy
+	public void close() {
+		workers.shutdownNow();
+	}
+
+	private void run(QuotationJob job, String idempotencyKey) {
+		job.start();
+		try {
+			job.complete(quotationService.generateQuotation(job.getRequest(), idempotencyKey), LocalDateTime.now(clock));
+		} catch (RecordNotFoundException | QuotationCriteriaNotFulfilledException | RateLimitExceededException
+				| IdempotencyKeyReusedException | RuntimeException e) {
+			log.debug("Quotation job {} failed: {}", job.getId(), e.toString());
+			job.fail(e, LocalDateTime.now(clock));
+		} catch (Error e) {
+			// the job must not be polled as running forever, the error is still the worker's to report
+			log.warn("Quotation job {} failed: {}", job.getId(), e.toString());
+			job.fail(e, LocalDateTime.now(clock));
+			throw e;
+		}
+	}
+
+	private QuotationJobRejectedException queueFull() {
+		rejected.increment();
+		return new QuotationJobRejectedException("Quotation job queue is full", 1);
+	}
+
+	// a job is not expected to run for the retention period, one that did is not waited for any more
+	private boolean isExpired(QuotationJob job, LocalDateTime now) {
+		LocalDateTime completedTime = job.getCompletedTime();
+		LocalDateTime since = completedTime != null ? completedTime : job.getCreatedTime();
+		return !since.plus(retention).isAfter(now);
+	}
+}
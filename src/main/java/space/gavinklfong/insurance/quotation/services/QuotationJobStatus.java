@@ -0,0 +1,8 @@
+package space.gavinklfong.insurance.quotation.services;
+
+public enum QuotationJobStatus {
+	PENDING,
+	RUNNING,
+	COMPLETED,
+	FAILED
+}
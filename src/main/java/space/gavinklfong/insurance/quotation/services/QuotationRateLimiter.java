@@ -0,0 +1,76 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits of quotation generation by customer and by partner (API key), so that one client
+ * cannot use up the downstream capacity of everyone else. Disabled unless configured.
+ *
+ * A request takes a token of both limits or of neither: the customer's token is given back if the
+ * partner's limit rejects the request.
+ */
+@Component
+public class QuotationRateLimiter {
+
+	private final boolean enabled;
+
+	private final TokenBucketRateLimiter<Long> customerLimiter;
+
+	private final TokenBucketRateLimiter<String> partnerLimiter;
+
+	private final Counter rejectedCustomers;
+
+	private final Counter rejectedPartners;
+
+	@Autowired
+	public QuotationRateLimiter(@Value("${app.quotation.rateLimit.enabled:false}") boolean enabled,
+								@Value("${app.quotation.rateLimit.customer.permitsPerSecond:5}") double customerPermitsPerSecond,
+								@Value("${app.quotation.rateLimit.customer.burst:10}") int customerBurst,
+								@Value("${app.quotation.rateLimit.partner.permitsPerSecond:100}") double partnerPermitsPerSecond,
+								@Value("${app.quotation.rateLimit.partner.burst:200}") int partnerBurst,
+								@Value("${app.quotation.rateLimit.maxKeys:100000}") int maxKeys,
+								@Value("${app.quotation.rateLimit.idleExpiry:600}") long idleExpiryInSeconds,
+								MeterRegistry meterRegistry) {
+		this.enabled = enabled;
+		this.customerLimiter = new TokenBucketRateLimiter<>(customerPermitsPerSecond, customerBurst, maxKeys, idleExpiryInSeconds);
+		this.partnerLimiter = new TokenBucketRateLimiter<>(partnerPermitsPerSecond, partnerBurst, maxKeys, idleExpiryInSeconds);
+		this.rejectedCustomers = Counter.builder("quotation.ratelimit.rejected").tag("key", "customer").register(meterRegistry);
+		this.rejectedPartners = Counter.builder("quotation.ratelimit.rejected").tag("key", "partner").register(meterRegistry);
+	}
+
+	public void acquire(Long customerId, String partnerKey) throws RateLimitExceededException {
+		if (!enabled) {
+			return;
+		}
+
+		if (customerId != null) {
+			long waitNanos = customerLimiter.tryAcquire(customerId);
+			if (waitNanos > 0) {
+				rejectedCustomers.increment();
+				throw new RateLimitExceededException("Too many quotation requests for the customer", toRetryAfterSeconds(waitNanos));
+			}
+		}
+
+		if (partnerKey != null) {
+			long waitNanos = partnerLimiter.tryAcquire(partnerKey);
+			if (waitNanos > 0) {
+				if (customerId != null) {
+					customerLimiter.release(customerId);
+				}
+				rejectedPartners.increment();
+				throw new RateLimitExceededException("Too many quotation requests for the partner", toRetryAfterSeconds(waitNanos));
+			}
+		}
+	}
+
+	private static long toRetryAfterSeconds(long waitNanos) {
+		return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+	}
+}
@@ -5,24 +5,33 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
+import space.gavinklfong.insurance.quotation.apiclients.FaultInjector;
+import space.gavinklfong.insurance.quotation.apiclients.FaultTarget;
 import space.gavinklfong.insurance.quotation.apiclients.ProductSrvClient;
 import space.gavinklfong.insurance.quotation.apiclients.RetryableCustomerSrvClient;
+import space.gavinklfong.insurance.quotation.apiclients.RetryableQuotationEngineClient;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
 import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.IdempotencyKeyReusedException;
 import space.gavinklfong.insurance.quotation.exceptions.QuotationCriteriaNotFulfilledException;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
 import space.gavinklfong.insurance.quotation.exceptions.RecordNotFoundException;
 import space.gavinklfong.insurance.quotation.models.Customer;
 import space.gavinklfong.insurance.quotation.models.Product;
 import space.gavinklfong.insurance.quotation.models.Quotation;
-import space.gavinklfong.insurance.quotation.repositories.QuotationRepository;
-
+import space.gavinklfong.insurance.quotation.repositories.OffHeapQuotationIndex;
+import space.gavinklfong.insurance.quotation.repositories.QuotationStore;
+import space.gavinklfong.insurance.quotation.rules.Eligibility;
+import space.gavinklfong.insurance.quotation.rules.ProductRulePlan;
+import space.gavinklfong.insurance.quotation.rules.QuotationRuleEngine;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.Period;
-import java.util.Arrays;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.stream.Stream;
-
-import static java.util.Objects.nonNull;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @Service
@@ -32,11 +41,13 @@ public class QuotationService {
 
 	public static final int CUSTOMER_ELIGIBLE_AGE = 18;
 
+	private static final RateLimit NO_RATE_LIMIT = () -> {};
+
 	@Value("${app.quotation.expiryTime}")
-	private Integer quotationExpiryTime;
+	private long quotationExpiryTime;
 
 	@Autowired
-	private QuotationRepository quotationRepo;
+	private QuotationStore quotationStore;
 
 	@Autowired
 	private RetryableCustomerSrvClient customerSrvClient;
@@ -44,94 +55,321 @@ public class QuotationService {
 	@Autowired
 	private ProductSrvClient productSrvClient;
 
-	public Quotation generateQuotation(QuotationReq request) throws RecordNotFoundException, QuotationCriteriaNotFulfilledException {
-		
-		Customer customer = customerSrvClient.getCustomer(request.getCustomerId())
-				.orElseThrow(() -> new RecordNotFoundException("Unknown customer"));
+	@Autowired
+	private ProductCatalogueSync productCatalogueSync;
+
+	@Autowired
+	private RetryableQuotationEngineClient quotationEngineClient;
+
+	@Autowired
+	private QuotationRuleEngine ruleEngine;
+
+	@Autowired
+	private QuotationIndex quotationIndex;
+
+	@Autowired
+	private QuotationCodeGenerator quotationCodeGenerator;
+
+	@Autowired
+	private SharedQuotationCache sharedCache;
+
+	@Autowired
+	private OffHeapQuotationIndex activeQuotations;
+
+	@Autowired
+	private QuotationEventLogger eventLogger;
+
+	@Autowired
+	private QuotationStageRecorder stageRecorder;
+
+	@Autowired
+	private QuotationFeed quotationFeed;
 
-		Product product = retrieveProduct(request.getProductCode())
-				.orElseThrow(() -> new RecordNotFoundException("Unknown product"));
+	@Autowired
+	private QuotationAnalytics analytics;
+
+	@Autowired
+	private FaultInjector faultInjector;
+
+	@Autowired
+	private QuotationRateLimiter rateLimiter;
+
+	@Autowired
+	private CancellationRetryListener cancellationRetryListener;
+
+	@Autowired
+	private Clock clock;
 
-		evaluateQuotationCriteria(request, customer, product);
+	// retry templates are stateless, build them once rather than per request
+	private final RetryTemplate saveRetryTemplate = RetryTemplate.builder()
+			.maxAttempts(3)
+			.fixedBackoff(1000L)
+			.build();
 
-		return saveQuotation(
-				generateQuotation(request, customer, product)
-		);
+	private final RetryTemplate productRetryTemplate = buildProductRetryTemplate(2);
 
+	private final RetryTemplate travelProductRetryTemplate = buildProductRetryTemplate(5);
+
+	// a cancelled request stops retrying, as the @Retryable clients do
+	@PostConstruct
+	void registerRetryListeners() {
+		saveRetryTemplate.registerListener(cancellationRetryListener);
+		productRetryTemplate.registerListener(cancellationRetryListener);
+		travelProductRetryTemplate.registerListener(cancellationRetryListener);
 	}
 
-	public Optional<Quotation> fetchQuotation(String quotationCode) {
-		return quotationRepo.findById(quotationCode);
+	public Quotation generateQuotation(QuotationReq request) throws RecordNotFoundException, QuotationCriteriaNotFulfilledException {
+		Optional<Quotation> reusable = findReusable(request);
+		return reusable.isPresent() ? reusable.get() : generateNewQuotation(request);
 	}
 
-	private void evaluateQuotationCriteria(QuotationReq request, Customer customer, Product product) throws QuotationCriteriaNotFulfilledException {
+	/**
+	 * Generates a quotation for a client request, subject to the customer's and the partner's rate limits.
+	 *
+	 * Retries with the idempotency key of an earlier request and requests answered with a reusable
+	 * quotation are not rate limited, as they call nothing downstream.
+	 */
+	public Quotation generateQuotation(QuotationReq request, String idempotencyKey, String partnerKey)
+			throws RecordNotFoundException, QuotationCriteriaNotFulfilledException, RateLimitExceededException, IdempotencyKeyReusedException {
+		return claimOrGenerateQuotation(request, idempotencyKey, () -> rateLimiter.acquire(request.getCustomerId(), partnerKey));
+	}
+
+	public Quotation generateQuotation(QuotationReq request, String idempotencyKey)
+			throws RecordNotFoundException, QuotationCriteriaNotFulfilledException, RateLimitExceededException, IdempotencyKeyReusedException {
+		return claimOrGenerateQuotation(request, idempotencyKey, NO_RATE_LIMIT);
+	}
 
-		// customer's age should be 18 or above
-		LocalDateTime now = LocalDateTime.now();
-		Period period = Period.between(customer.getDob(), now.toLocalDate());
-		if (period.getYears() < CUSTOMER_ELIGIBLE_AGE) {
-			throw new QuotationCriteriaNotFulfilledException("customer's age < 18");
+	private Quotation claimOrGenerateQuotation(QuotationReq request, String idempotencyKey, RateLimit rateLimit)
+			throws RecordNotFoundException, QuotationCriteriaNotFulfilledException, RateLimitExceededException, IdempotencyKeyReusedException {
+
+		if (idempotencyKey == null) {
+			return reuseOrGenerateQuotation(request, rateLimit);
 		}
 
-		log.info("Retrieved product: " + product.toString());
-		log.info("Request post code: " + request.toString());
+		// the first request with the key generates the quotation, retries get the same result
+		CompletableFuture<Quotation> claim = new CompletableFuture<>();
+		Optional<CompletableFuture<Quotation>> previousAttempt = quotationIndex.claim(request, idempotencyKey, claim);
+		if (previousAttempt.isPresent()) {
+			log.debug("Quotation request with idempotency key {} already processed", idempotencyKey);
+			return awaitQuotation(previousAttempt.get());
+		}
 
-		// the request post code should be within the product's service scope
-		if (!Stream.of(product.getPostCodesInService()).anyMatch(s -> s.equalsIgnoreCase(request.getPostCode()))) {
-			throw new QuotationCriteriaNotFulfilledException(String.format("Request post code %s is not within the scope of service", request.getPostCode()));
+		try {
+			Quotation quotation = reuseOrGenerateQuotation(request, rateLimit);
+			claim.complete(quotation);
+			return quotation;
+		} catch (RecordNotFoundException | QuotationCriteriaNotFulfilledException | RateLimitExceededException | RuntimeException e) {
+			quotationIndex.release(request.getCustomerId(), idempotencyKey, claim);
+			claim.completeExceptionally(e);
+			throw e;
 		}
 	}
 
-	private Quotation generateQuotation(QuotationReq request, Customer customer, Product product) {
+	private Quotation reuseOrGenerateQuotation(QuotationReq request, RateLimit rateLimit)
+			throws RecordNotFoundException, QuotationCriteriaNotFulfilledException, RateLimitExceededException {
+		Optional<Quotation> reusable = findReusable(request);
+		if (reusable.isPresent()) {
+			return reusable.get();
+		}
 
-		Double quotationAmount = product.getListedPrice().doubleValue();
+		rateLimit.acquire();
+		return generateNewQuotation(request);
+	}
+
+	private Optional<Quotation> findReusable(QuotationReq request) {
+		Optional<Quotation> reusable = quotationIndex.findReusable(request);
+		reusable.ifPresent(eventLogger::reused);
+		return reusable;
+	}
 
-		LocalDateTime now = LocalDateTime.now();
+	private Quotation generateNewQuotation(QuotationReq request) throws RecordNotFoundException, QuotationCriteriaNotFulfilledException {
+		Quotation quotation;
+		try {
+			quotation = doGenerateQuotation(request);
+		} catch (QuotationCriteriaNotFulfilledException e) {
+			eventLogger.rejected(request, e.getMessage());
+			analytics.rejected(e.getReason());
+			throw e;
+		}
+		eventLogger.generated(quotation);
+		quotationFeed.publish(quotation);
+		quotationIndex.index(request, quotation);
+		return quotation;
+	}
 
-		// check if post code is in the discount list
-		//
-		// Offer discount if customer's post code matches the specification in product info
-		//
-		if (nonNull(product.getPostCodesWithDiscount())) {
-			boolean found = Arrays.stream(product.getPostCodesWithDiscount())
-					.anyMatch(x -> x.equalsIgnoreCase(request.getPostCode()));
-			if (found) {
-				log.debug("Post code matched, apply discount rate = " + product.getPostCodeDiscountRate());
-				quotationAmount *= (1 - product.getPostCodeDiscountRate());
+	private Quotation awaitQuotation(CompletableFuture<Quotation> attempt)
+			throws RecordNotFoundException, QuotationCriteriaNotFulfilledException, RateLimitExceededException {
+		try {
+			return attempt.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RecordNotFoundException) {
+				throw (RecordNotFoundException) cause;
+			} else if (cause instanceof QuotationCriteriaNotFulfilledException) {
+				throw (QuotationCriteriaNotFulfilledException) cause;
+			} else if (cause instanceof RateLimitExceededException) {
+				throw (RateLimitExceededException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
 			}
+			throw e;
 		}
+	}
+
+	private Quotation doGenerateQuotation(QuotationReq request) throws RecordNotFoundException, QuotationCriteriaNotFulfilledException {
+
+		QuotationStageRecorder.Recording recording = stageRecorder.start(request);
+		Quotation quotation = null;
+		try {
+			recording.begin(QuotationStage.CUSTOMER);
+			Customer customer = customerSrvClient.getCustomer(request.getCustomerId())
+					.orElseThrow(() -> new RecordNotFoundException("Unknown customer"));
+
+			recording.begin(QuotationStage.PRODUCT);
+			Product product = retrieveProduct(request.getProductCode())
+					.orElseThrow(() -> new RecordNotFoundException("Unknown product"));
+
+			recording.begin(QuotationStage.EVALUATION);
+			QuotationEngineReq engineReq = engineRequest(request, customer, product);
+
+			// read the clock once for both the eligibility check and the expiry time
+			LocalDateTime now = LocalDateTime.now(clock);
 
-		log.debug("After post code check, amount = " + quotationAmount);
+			ProductRulePlan plan = evaluateQuotationCriteria(engineReq, now.toLocalDate());
+
+			// priced by the same plan, should the rule set be reloaded meanwhile
+			recording.begin(QuotationStage.PRICING);
+			Quotation generated = generateQuotation(request, engineReq, plan, now);
+
+			recording.begin(QuotationStage.SAVE);
+			quotation = saveQuotation(generated);
+			analytics.generated(quotation, plan.discountOf(request.getPostCode()));
+			return quotation;
+		} finally {
+			recording.finish(quotation);
+		}
+	}
+
+	/**
+	 * Evaluates and prices the request for the given customer and product as quotation generation does,
+	 * without saving, indexing or publishing the quotation, e.g. to warm up the pipeline.
+	 */
+	public Quotation priceQuotation(QuotationReq request, Customer customer, Product product) throws QuotationCriteriaNotFulfilledException {
+		QuotationEngineReq engineReq = engineRequest(request, customer, product);
+		LocalDateTime now = LocalDateTime.now(clock);
+		ProductRulePlan plan = evaluateQuotationCriteria(engineReq, now.toLocalDate());
+		return generateQuotation(request, engineReq, plan, now);
+	}
+
+	public Optional<Quotation> fetchQuotation(String quotationCode) {
+		Optional<Quotation> active = activeQuotations.find(quotationCode);
+		if (active.isPresent()) {
+			return active;
+		}
+
+		Optional<Quotation> quotation = sharedCache.get(quotationCode, quotationStore::findById);
+		quotation.ifPresent(activeQuotations::put);
+		return quotation;
+	}
+
+	private static QuotationEngineReq engineRequest(QuotationReq request, Customer customer, Product product) {
+		return QuotationEngineReq.builder()
+				.customer(customer)
+				.product(product)
+				.postCode(request.getPostCode())
+				.build();
+	}
+
+	private ProductRulePlan evaluateQuotationCriteria(QuotationEngineReq engineReq, LocalDate today) throws QuotationCriteriaNotFulfilledException {
+
+		ProductRulePlan plan = ruleEngine.planFor(engineReq.getProduct());
+
+		if (log.isDebugEnabled()) {
+			log.debug("Evaluate quotation criteria: productCode={}, postCode={}, postCodesInService={}",
+					plan.getProduct().getProductCode(), engineReq.getPostCode(), plan.getProduct().getPostCodesInService().size());
+		}
+
+		switch (plan.checkEligibility(engineReq.getCustomer().getDob(), engineReq.getPostCode(), today)) {
+			case UNDER_AGE:
+				throw new QuotationCriteriaNotFulfilledException("customer's age < " + plan.getMinimumAge(), Eligibility.UNDER_AGE);
+			case POST_CODE_OUT_OF_SERVICE:
+				throw new QuotationCriteriaNotFulfilledException(String.format("Request post code %s is not within the scope of service", engineReq.getPostCode()),
+						Eligibility.POST_CODE_OUT_OF_SERVICE);
+			default:
+				return plan;
+		}
+	}
+
+	private Quotation generateQuotation(QuotationReq request, QuotationEngineReq engineReq, ProductRulePlan plan, LocalDateTime now) {
+
+		double quotationAmount = price(engineReq, plan, now.toLocalDate());
+
+		if (log.isDebugEnabled()) {
+			log.debug("Quotation priced: productCode={}, postCode={}, amount={}", request.getProductCode(), request.getPostCode(), quotationAmount);
+		}
 
 		// Construct quotation and save to data store
 		return Quotation.builder()
-				.quotationCode(UUID.randomUUID().toString())
-				.customerId(customer.getId())
+				.quotationCode(quotationCodeGenerator.next())
+				.customerId(engineReq.getCustomer().getId())
 				.expiryTime(now.plusMinutes(quotationExpiryTime))
 				.productCode(request.getProductCode())
 				.amount(quotationAmount)
 				.build();
 	}
 
-	private Quotation saveQuotation(Quotation quotation) {
-		RetryTemplate retryTemplate = RetryTemplate.builder()
-				.maxAttempts(3)
-				.fixedBackoff(1000L)
-				.build();
+	private double price(QuotationEngineReq engineReq, ProductRulePlan plan, LocalDate today) {
+
+		// offload pricing to the quotation engine if enabled, and fall back to local pricing if it is slow or down
+		if (quotationEngineClient.isEnabled()) {
+			try {
+				Optional<Double> amount = quotationEngineClient.getPrice(engineReq);
+				if (amount.isPresent()) {
+					return amount.get();
+				}
+			} catch (RuntimeException e) {
+				log.debug("Quotation engine failed, fall back to local pricing: {}", e.toString());
+			}
+		}
+
+		return plan.price(engineReq.getCustomer().getDob(), engineReq.getPostCode(), today);
+	}
 
-		return retryTemplate.execute(arg -> quotationRepo.save(quotation));
+	private Quotation saveQuotation(Quotation quotation) {
+		Quotation saved = saveRetryTemplate.execute(arg -> {
+			faultInjector.inject(FaultTarget.QUOTATION_STORE);
+			return quotationStore.save(quotation);
+		});
+		// a poll may reach any instance, share the quotation with the instance owning it
+		sharedCache.put(saved);
+		activeQuotations.put(saved);
+		return saved;
 	}
 
 	private Optional<Product> retrieveProduct(String productCode) {
 
-		int maxAttempts = productCode.startsWith(TRAVEL_INSURANCE_PREFIX)? 5 : 2;
+		// once loaded the local replica is authoritative, an unknown product code needs no remote call
+		Optional<ProductCatalogue> catalogue = productCatalogueSync.getCatalogue();
+		if (catalogue.isPresent()) {
+			return catalogue.get().find(productCode);
+		}
+
+		RetryTemplate retryTemplate = productCode.startsWith(TRAVEL_INSURANCE_PREFIX)?
+				travelProductRetryTemplate : productRetryTemplate;
 
-		RetryTemplate retryTemplate = RetryTemplate.builder()
+		return retryTemplate.execute(arg -> productSrvClient.getProduct(productCode));
+	}
+
+	private static RetryTemplate buildProductRetryTemplate(int maxAttempts) {
+		return RetryTemplate.builder()
 				.maxAttempts(maxAttempts)
 				.retryOn(RuntimeException.class)
 				.exponentialBackoff(300L, 2, 5000L, true)
 				.build();
+	}
 
-		return retryTemplate.execute(arg -> productSrvClient.getProduct(productCode));
+	// taken only when a quotation is generated rather than replayed or reused
+	private interface RateLimit {
+		void acquire() throws RateLimitExceededException;
 	}
 }
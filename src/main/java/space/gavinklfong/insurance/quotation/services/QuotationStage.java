@@ -0,0 +1,22 @@
+package space.gavinklfong.insurance.quotation.services;
+
+/**
+ * Stages of quotation generation, in the order they run.
+ */
+public enum QuotationStage {
+	CUSTOMER("customer"),
+	PRODUCT("product"),
+	EVALUATION("evaluation"),
+	PRICING("pricing"),
+	SAVE("save");
+
+	private final String tag;
+
+	QuotationStage(String tag) {
+		this.tag = tag;
+	}
+
+	public String getTag() {
+		return tag;
+	}
+}
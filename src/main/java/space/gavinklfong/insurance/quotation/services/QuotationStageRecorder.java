@@ -0,0 +1,198 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each stage of quotation generation and keeps the stage breakdown of the slowest recent requests.
+ *
+ * Stage durations are published as the quotation.generate.stage timer tagged by stage, the whole
+ * generation as the quotation.generate timer tagged by outcome, both with percentile histograms.
+ * A request only takes the lock of the slow request list if it is slower than the fastest
+ * request in the full list, so the common case costs a few timer updates.
+ */
+@Component
+public class QuotationStageRecorder {
+
+	static final String STAGE_TIMER = "quotation.generate.stage";
+
+	static final String TOTAL_TIMER = "quotation.generate";
+
+	private static final QuotationStage[] STAGES = QuotationStage.values();
+
+	private final Map<QuotationStage, Timer> stageTimers = new EnumMap<>(QuotationStage.class);
+
+	private final Timer successTimer;
+
+	private final Timer failureTimer;
+
+	private final int maxSlowRequests;
+
+	private final long slowRequestWindowMillis;
+
+	private final Clock clock;
+
+	// slowest first
+	private final List<SlowQuotationRequest> slowRequests = new ArrayList<>();
+
+	// a request must be slower than this to enter the full list
+	private volatile double admissionMillis;
+
+	private volatile long oldestSlowRequestMillis = Long.MAX_VALUE;
+
+	@Autowired
+	public QuotationStageRecorder(MeterRegistry meterRegistry,
+								  @Value("${app.quotation.metrics.slowRequests:10}") int maxSlowRequests,
+								  @Value("${app.quotation.metrics.slowRequestWindow:300}") long slowRequestWindowInSeconds,
+								  Clock clock) {
+		for (QuotationStage stage : STAGES) {
+			stageTimers.put(stage, timer(STAGE_TIMER, "stage", stage.getTag()).register(meterRegistry));
+		}
+		this.successTimer = timer(TOTAL_TIMER, "outcome", "success").register(meterRegistry);
+		this.failureTimer = timer(TOTAL_TIMER, "outcome", "failure").register(meterRegistry);
+		this.maxSlowRequests = maxSlowRequests;
+		this.slowRequestWindowMillis = TimeUnit.SECONDS.toMillis(slowRequestWindowInSeconds);
+		this.clock = clock;
+	}
+
+	public Recording start(QuotationReq request) {
+		return new Recording(request);
+	}
+
+	public Timer getStageTimer(QuotationStage stage) {
+		return stageTimers.get(stage);
+	}
+
+	public Timer getTotalTimer(boolean success) {
+		return success ? successTimer : failureTimer;
+	}
+
+	public List<SlowQuotationRequest> getSlowestRequests() {
+		synchronized (slowRequests) {
+			expireSlowRequests(clock.millis());
+			return new ArrayList<>(slowRequests);
+		}
+	}
+
+	private void offer(Recording recording, Quotation quotation, long totalNanos) {
+		double totalMillis = toMillis(totalNanos);
+		long now = clock.millis();
+		if (totalMillis <= admissionMillis && now - oldestSlowRequestMillis < slowRequestWindowMillis) {
+			return;
+		}
+
+		synchronized (slowRequests) {
+			expireSlowRequests(now);
+			if (slowRequests.size() >= maxSlowRequests && totalMillis <= slowRequests.get(slowRequests.size() - 1).getTotalMillis()) {
+				return;
+			}
+
+			int position = 0;
+			while (position < slowRequests.size() && slowRequests.get(position).getTotalMillis() >= totalMillis) {
+				position++;
+			}
+			slowRequests.add(position, recording.toSlowRequest(quotation, totalMillis));
+			if (slowRequests.size() > maxSlowRequests) {
+				slowRequests.remove(slowRequests.size() - 1);
+			}
+			updateAdmission();
+		}
+	}
+
+	private void expireSlowRequests(long now) {
+		if (slowRequests.removeIf(slowRequest -> now - slowRequest.getTime().toEpochMilli() >= slowRequestWindowMillis)) {
+			updateAdmission();
+		}
+	}
+
+	private void updateAdmission() {
+		admissionMillis = slowRequests.size() < maxSlowRequests ? 0 : slowRequests.get(slowRequests.size() - 1).getTotalMillis();
+		oldestSlowRequestMillis = slowRequests.stream()
+				.mapToLong(slowRequest -> slowRequest.getTime().toEpochMilli())
+				.min()
+				.orElse(Long.MAX_VALUE);
+	}
+
+	private static Timer.Builder timer(String name, String tagKey, String tagValue) {
+		return Timer.builder(name)
+				.tag(tagKey, tagValue)
+				.publishPercentileHistogram()
+				.publishPercentiles(0.5, 0.95, 0.99);
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	/**
+	 * Timing of a single quotation request, used by the request's thread only.
+	 *
+	 * A stage runs from its begin to the begin of the next stage or the finish of the request,
+	 * so the stage a request failed in, or is still in when it gives up, is recorded as well.
+	 */
+	public class Recording {
+
+		private final QuotationReq request;
+
+		private final long startNanos;
+
+		private final long[] stageNanos = new long[STAGES.length];
+
+		private QuotationStage stage;
+
+		private long stageStartNanos;
+
+		private Recording(QuotationReq request) {
+			this.request = request;
+			this.startNanos = System.nanoTime();
+		}
+
+		// ends the current stage, if any, and starts the given one
+		public void begin(QuotationStage stage) {
+			long now = System.nanoTime();
+			endStage(now);
+			this.stage = stage;
+			this.stageStartNanos = now;
+		}
+
+		public void finish(Quotation quotation) {
+			long now = System.nanoTime();
+			endStage(now);
+			long totalNanos = now - startNanos;
+			(quotation != null ? successTimer : failureTimer).record(totalNanos, TimeUnit.NANOSECONDS);
+			offer(this, quotation, totalNanos);
+		}
+
+		private void endStage(long now) {
+			if (stage == null) {
+				return;
+			}
+			long duration = now - stageStartNanos;
+			stageNanos[stage.ordinal()] = duration;
+			stageTimers.get(stage).record(duration, TimeUnit.NANOSECONDS);
+			stage = null;
+		}
+
+		private SlowQuotationRequest toSlowRequest(Quotation quotation, double totalMillis) {
+			Map<String, Double> stageMillis = new LinkedHashMap<>();
+			for (QuotationStage stage : STAGES) {
+				stageMillis.put(stage.getTag(), toMillis(stageNanos[stage.ordinal()]));
+			}
+			return new SlowQuotationRequest(clock.instant(), request.getCustomerId(), request.getProductCode(),
+					quotation == null ? null : quotation.getQuotationCode(), totalMillis, stageMillis);
+		}
+	}
+}
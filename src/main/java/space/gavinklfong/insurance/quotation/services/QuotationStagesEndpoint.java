@@ -0,0 +1,54 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizes where quotation generation spends its time: latency by stage and the stage
+ * breakdown of the slowest recent requests.
+ */
+@Component
+@Endpoint(id = "quotationstages")
+public class QuotationStagesEndpoint {
+
+	private final QuotationStageRecorder stageRecorder;
+
+	public QuotationStagesEndpoint(QuotationStageRecorder stageRecorder) {
+		this.stageRecorder = stageRecorder;
+	}
+
+	@ReadOperation
+	public Map<String, Object> stages() {
+		Map<String, Object> stages = new LinkedHashMap<>();
+		for (QuotationStage stage : QuotationStage.values()) {
+			stages.put(stage.getTag(), describe(stageRecorder.getStageTimer(stage)));
+		}
+
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("success", describe(stageRecorder.getTotalTimer(true)));
+		summary.put("failure", describe(stageRecorder.getTotalTimer(false)));
+		summary.put("stages", stages);
+		summary.put("slowestRequests", stageRecorder.getSlowestRequests());
+		return summary;
+	}
+
+	private static Map<String, Object> describe(Timer timer) {
+		HistogramSnapshot snapshot = timer.takeSnapshot();
+		Map<String, Object> description = new LinkedHashMap<>();
+		description.put("count", snapshot.count());
+		description.put("meanMillis", snapshot.mean(TimeUnit.MILLISECONDS));
+		description.put("maxMillis", snapshot.max(TimeUnit.MILLISECONDS));
+		for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+			description.put("p" + Math.round(percentile.percentile() * 100) + "Millis", percentile.value(TimeUnit.MILLISECONDS));
+		}
+		return description;
+	}
+}
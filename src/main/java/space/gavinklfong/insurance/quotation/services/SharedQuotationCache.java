@@ -0,0 +1,202 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import space.gavinklfong.insurance.quotation.apiclients.PeerQuotationCacheClient;
+import space.gavinklfong.insurance.quotation.apiclients.QuotationSigner;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.InMemoryQuotationCacheNode;
+import space.gavinklfong.insurance.quotation.repositories.OffHeapQuotationCacheNode;
+import space.gavinklfong.insurance.quotation.repositories.OffHeapQuotationIndex;
+import space.gavinklfong.insurance.quotation.repositories.QuotationCacheNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Quotation cache shared by all instances of the service.
+ *
+ * Each instance holds the partition of the quotations which the consistent hash of their codes
+ * maps to it, and reaches the other partitions on its peers. So a quotation generated on one
+ * instance can be read on any other without a round trip to the store, and the cache capacity
+ * grows with the number of instances. Every instance must be configured with the same nodes.
+ *
+ * With the off-heap index enabled, the partition of an instance is held in the off-heap index.
+ * Concurrent misses of the same quotation on an instance share one store read. Peers present the
+ * shared secret of the instances, and a quotation pushed by a peer is only cached with a valid
+ * signature of its content, so that the partition cannot be filled with made-up quotations.
+ */
+@Slf4j
+@Component
+public class SharedQuotationCache {
+
+	static final String CACHE_COUNTER = "quotation.sharedcache";
+
+	private final ConcurrentMap<String, CompletableFuture<Optional<Quotation>>> inFlightLoads = new ConcurrentHashMap<>();
+
+	private final boolean enabled;
+
+	private final QuotationCacheNode localNode;
+
+	private final ConsistentHashRing<QuotationCacheNode> ring;
+
+	private final int replicas;
+
+	private final byte[] secret;
+
+	private final QuotationSigner signer;
+
+	private final Counter hits;
+
+	private final Counter misses;
+
+	@Autowired
+	public SharedQuotationCache(@Value("${app.quotation.sharedCache.enabled:false}") boolean enabled,
+								@Value("${app.quotation.sharedCache.nodeId:local}") String nodeId,
+								@Value("${app.quotation.sharedCache.peers:}") String peers,
+								@Value("${app.quotation.sharedCache.virtualNodes:160}") int virtualNodes,
+								@Value("${app.quotation.sharedCache.replicas:1}") int replicas,
+								@Value("${app.quotation.sharedCache.maxEntries:100000}") int maxEntries,
+								@Value("${app.quotation.sharedCache.timeout:100}") long timeoutMillis,
+								@Value("${app.quotation.sharedCache.peerRetryInterval:5000}") long peerRetryIntervalMillis,
+								@Value("${app.quotation.sharedCache.secret:}") String secret,
+								OffHeapQuotationIndex offHeapIndex,
+								MeterRegistry meterRegistry,
+								Clock clock) {
+		this(enabled, offHeapIndex.isEnabled() ? new OffHeapQuotationCacheNode(nodeId, offHeapIndex)
+						: new InMemoryQuotationCacheNode(nodeId, maxEntries, clock),
+				enabled ? peerNodes(peers, secret, Duration.ofMillis(timeoutMillis), Duration.ofMillis(peerRetryIntervalMillis)) : List.of(),
+				virtualNodes, replicas, secret, meterRegistry);
+	}
+
+	public SharedQuotationCache(boolean enabled, QuotationCacheNode localNode, List<QuotationCacheNode> peerNodes,
+								int virtualNodes, int replicas, String secret, MeterRegistry meterRegistry) {
+		if (enabled && (secret == null || secret.isBlank())) {
+			throw new IllegalArgumentException("app.quotation.sharedCache.secret must be set if the shared cache is enabled");
+		}
+		this.enabled = enabled;
+		this.localNode = localNode;
+		this.replicas = replicas;
+		this.secret = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+		this.signer = enabled ? new QuotationSigner(secret) : null;
+
+		List<QuotationCacheNode> nodes = new ArrayList<>(peerNodes);
+		nodes.add(localNode);
+		this.ring = new ConsistentHashRing<>(nodes, QuotationCacheNode::getId, virtualNodes);
+
+		this.hits = meterRegistry.counter(CACHE_COUNTER, "result", "hit");
+		this.misses = meterRegistry.counter(CACHE_COUNTER, "result", "miss");
+
+		if (enabled) {
+			log.info("Shared quotation cache: node={}, nodes={}, replicas={}", localNode.getId(), ring.size(), replicas);
+		}
+	}
+
+	/**
+	 * Looks the quotation up on the nodes owning it, loading and caching it on a miss.
+	 */
+	public Optional<Quotation> get(String quotationCode, Function<String, Optional<Quotation>> loader) {
+		if (!enabled) {
+			return loader.apply(quotationCode);
+		}
+
+		for (QuotationCacheNode node : ring.nodesFor(quotationCode, replicas)) {
+			Optional<Quotation> quotation = node.get(quotationCode);
+			if (quotation.isPresent()) {
+				hits.increment();
+				return quotation;
+			}
+		}
+		misses.increment();
+
+		CompletableFuture<Optional<Quotation>> load = new CompletableFuture<>();
+		CompletableFuture<Optional<Quotation>> inFlight = inFlightLoads.putIfAbsent(quotationCode, load);
+		if (inFlight != null) {
+			return awaitLoad(inFlight);
+		}
+
+		try {
+			Optional<Quotation> quotation = loader.apply(quotationCode);
+			load.complete(quotation);
+			quotation.ifPresent(this::put);
+			return quotation;
+		} catch (RuntimeException e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlightLoads.remove(quotationCode, load);
+		}
+	}
+
+	public void put(Quotation quotation) {
+		if (!enabled) {
+			return;
+		}
+		ring.nodesFor(quotation.getQuotationCode(), replicas).forEach(node -> node.put(quotation));
+	}
+
+	// the partition of this instance, served to the peers
+	public Optional<Quotation> getLocal(String quotationCode) {
+		return localNode.get(quotationCode);
+	}
+
+	public void putLocal(Quotation quotation) {
+		localNode.put(quotation);
+	}
+
+	// whether a request to the partition comes from a peer, compared in constant time
+	public boolean isPeerSecret(String peerSecret) {
+		return enabled && peerSecret != null
+				&& MessageDigest.isEqual(secret, peerSecret.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// whether a pushed quotation was signed by a peer, i.e. generated by an instance of the service
+	public boolean isSignedByPeer(Quotation quotation, String signature) {
+		return enabled && signer.verify(quotation, signature);
+	}
+
+	String ownerOf(String quotationCode) {
+		return ring.nodeFor(quotationCode).getId();
+	}
+
+	private static Optional<Quotation> awaitLoad(CompletableFuture<Optional<Quotation>> load) {
+		try {
+			return load.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// e.g. node-b=http://quotation-srv-b:8102,node-c=http://quotation-srv-c:8102
+	private static List<QuotationCacheNode> peerNodes(String peers, String secret, Duration timeout, Duration retryInterval) {
+		List<QuotationCacheNode> nodes = new ArrayList<>();
+		for (String peer : peers.split(",")) {
+			if (peer.isBlank()) {
+				continue;
+			}
+			String[] idAndUrl = peer.trim().split("=", 2);
+			if (idAndUrl.length != 2) {
+				throw new IllegalArgumentException("Quotation cache peer must be id=url: " + peer);
+			}
+			nodes.add(new PeerQuotationCacheClient(idAndUrl[0].trim(), idAndUrl[1].trim(), secret, timeout, retryInterval));
+		}
+		return nodes;
+	}
+}
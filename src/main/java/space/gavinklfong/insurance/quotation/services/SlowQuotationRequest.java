@@ -0,0 +1,26 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Stage breakdown of one of the slowest recent quotation requests.
+ */
+@Value
+public class SlowQuotationRequest {
+
+	Instant time;
+
+	Long customerId;
+
+	String productCode;
+
+	// null if the request failed
+	String quotationCode;
+
+	double totalMillis;
+
+	Map<String, Double> stageMillis;
+}
@@ -0,0 +1,109 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token buckets by key, in bounded memory.
+ *
+ * Each bucket is a single theoretical arrival time (the generic cell rate algorithm): a request
+ * is allowed if the bucket's arrival time is no further ahead of now than the burst allows, and
+ * pushes it on by one emission interval with a CAS. A bucket whose arrival time has passed is
+ * full, so idle buckets are dropped without losing state. If the table is full of active keys,
+ * new keys share one overflow bucket rather than growing the table.
+ */
+public class TokenBucketRateLimiter<K> {
+
+	private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final long emissionIntervalNanos;
+
+	// how far the arrival time may run ahead of now, i.e. the burst on top of the first token
+	private final long burstToleranceNanos;
+
+	private final int maxKeys;
+
+	private final long idleNanos;
+
+	private final LongSupplier nanoClock;
+
+	private final ConcurrentMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+	private final AtomicLong overflowBucket;
+
+	private final AtomicLong lastPurge;
+
+	public TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxKeys, long idleExpiryInSeconds) {
+		this(permitsPerSecond, burst, maxKeys, idleExpiryInSeconds, System::nanoTime);
+	}
+
+	TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxKeys, long idleExpiryInSeconds, LongSupplier nanoClock) {
+		this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+		this.burstToleranceNanos = emissionIntervalNanos * (Math.max(burst, 1) - 1);
+		this.maxKeys = maxKeys;
+		this.idleNanos = TimeUnit.SECONDS.toNanos(idleExpiryInSeconds);
+		this.nanoClock = nanoClock;
+		long now = nanoClock.getAsLong();
+		this.overflowBucket = new AtomicLong(now);
+		this.lastPurge = new AtomicLong(now);
+	}
+
+	/**
+	 * Takes a token of the key's bucket.
+	 *
+	 * Returns 0 if a token was taken, otherwise the nanoseconds until the next token is available.
+	 */
+	public long tryAcquire(K key) {
+		long now = nanoClock.getAsLong();
+		AtomicLong bucket = bucketFor(key, now);
+		while (true) {
+			long arrivalTime = bucket.get();
+			long base = arrivalTime - now > 0 ? arrivalTime : now;
+			long ahead = base - now;
+			if (ahead > burstToleranceNanos) {
+				return ahead - burstToleranceNanos;
+			}
+			if (bucket.compareAndSet(arrivalTime, base + emissionIntervalNanos)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Gives back a token taken of the key's bucket, e.g. when another limit rejected the request.
+	 */
+	public void release(K key) {
+		bucketFor(key, nanoClock.getAsLong()).addAndGet(-emissionIntervalNanos);
+	}
+
+	public int size() {
+		return buckets.size();
+	}
+
+	private AtomicLong bucketFor(K key, long now) {
+		AtomicLong bucket = buckets.get(key);
+		if (bucket != null) {
+			return bucket;
+		}
+
+		if (buckets.size() >= maxKeys) {
+			purgeIdle(now);
+			if (buckets.size() >= maxKeys) {
+				return overflowBucket;
+			}
+		}
+		return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+	}
+
+	// at most once per purge interval, so a flood of new keys does not rescan the table on every request
+	private void purgeIdle(long now) {
+		long last = lastPurge.get();
+		if (now - last < PURGE_INTERVAL_NANOS || !lastPurge.compareAndSet(last, now)) {
+			return;
+		}
+		buckets.values().removeIf(bucket -> now - bucket.get() > idleNanos);
+	}
+}
@@ -0,0 +1,40 @@
+package space.gavinklfong.insurance.quotation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.models.Customer;
+import space.gavinklfong.insurance.quotation.models.Product;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.services.QuotationService;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Tag("UnitTest")
+public class StartupWarmupTests {
+
+    private final QuotationService quotationService = mock(QuotationService.class);
+
+    private final StartupWarmup startupWarmup = new StartupWarmup(new ObjectMapper().registerModule(new JavaTimeModule()),
+            WebClient.builder(), quotationService, Clock.systemDefaultZone(), true, 20);
+
+    @Test
+    void givenStandInServices_whenWarmUpPipeline_thenCompleteWithoutDownstreamServices() throws Exception {
+        when(quotationService.priceQuotation(any(QuotationReq.class), any(Customer.class), any(Product.class)))
+                .thenReturn(Quotation.builder().quotationCode("warmup").amount(1500.0).build());
+
+        assertDoesNotThrow(startupWarmup::warmUpPipeline);
+
+        verify(quotationService, times(20)).priceQuotation(any(QuotationReq.class), any(Customer.class), any(Product.class));
+    }
+}
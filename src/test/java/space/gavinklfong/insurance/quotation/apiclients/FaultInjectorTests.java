@@ -0,0 +1,101 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import space.gavinklfong.insurance.quotation.models.Customer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@WireMockTest
+public class FaultInjectorTests {
+
+    private static final long CUSTOMER_ID = 1L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final FaultInjector faultInjector = new FaultInjector(true, 42, meterRegistry);
+
+    private CustomerSrvClient customerSrvClient;
+
+    @BeforeEach
+    void setUp(WireMockRuntimeInfo wmRuntimeInfo) {
+        customerSrvClient = new CustomerSrvClient(wmRuntimeInfo.getHttpBaseUrl());
+        ReflectionTestUtils.setField(customerSrvClient, "faultInjector", faultInjector);
+        WireMock.reset();
+        stubFor(get("/customers/" + CUSTOMER_ID).willReturn(aResponse()
+                .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .withBody("{\"id\": 1, \"name\": \"Gavin\"}")));
+    }
+
+    @Test
+    void givenErrorRate_whenGetCustomer_thenFailWith503WithoutCallingService() {
+        faultInjector.setFault(FaultTarget.CUSTOMER_SRV, Fault.builder().errorRate(1).build());
+
+        WebClientResponseException e = assertThrows(WebClientResponseException.class, () -> customerSrvClient.getCustomer(CUSTOMER_ID));
+        assertEquals(503, e.getRawStatusCode());
+        verify(0, getRequestedFor(urlEqualTo("/customers/" + CUSTOMER_ID)));
+        assertEquals(1.0, meterRegistry.counter(FaultInjector.FAULT_COUNTER, "target", "customer-srv", "fault", "error").count());
+    }
+
+    @Test
+    void givenResetRate_whenGetCustomer_thenFailAsConnectionReset() {
+        faultInjector.setFault(FaultTarget.CUSTOMER_SRV, Fault.builder().resetRate(1).build());
+
+        assertThrows(WebClientRequestException.class, () -> customerSrvClient.getCustomer(CUSTOMER_ID));
+    }
+
+    @Test
+    void givenLatencyAndSlowBody_whenGetCustomer_thenDelayed() {
+        faultInjector.setFault(FaultTarget.CUSTOMER_SRV, Fault.builder().latencyMillis(200).slowBodyMillis(200).build());
+
+        long start = System.nanoTime();
+        Customer customer = customerSrvClient.getCustomer(CUSTOMER_ID).orElseThrow();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("Gavin", customer.getName());
+        assertTrue(elapsedMillis >= 400, "elapsed " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void givenInterruptedDuringLatency_whenInject_thenAbortCall() {
+        faultInjector.setFault(FaultTarget.QUOTATION_STORE, Fault.builder().latencyMillis(10_000).build());
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(TransientDataAccessResourceException.class, () -> faultInjector.inject(FaultTarget.QUOTATION_STORE));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void givenFaultCleared_whenGetCustomer_thenCallService() {
+        faultInjector.setFault(FaultTarget.CUSTOMER_SRV, Fault.builder().errorRate(1).build());
+        faultInjector.setFault(FaultTarget.QUOTATION_STORE, Fault.builder().errorRate(1).build());
+        faultInjector.clearFault(FaultTarget.CUSTOMER_SRV);
+        assertEquals(1, faultInjector.getFaults().size());
+
+        assertTrue(customerSrvClient.getCustomer(CUSTOMER_ID).isPresent());
+        assertThrows(TransientDataAccessResourceException.class, () -> faultInjector.inject(FaultTarget.QUOTATION_STORE));
+    }
+
+    @Test
+    void givenNotEnabled_whenSetFault_thenRejected() {
+        FaultInjector disabled = new FaultInjector(false, 0, meterRegistry);
+
+        assertThrows(IllegalStateException.class, () -> disabled.setFault(FaultTarget.CUSTOMER_SRV, Fault.builder().errorRate(1).build()));
+        disabled.inject(FaultTarget.QUOTATION_STORE);
+        assertTrue(disabled.getFaults().isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@WireMockTest
+public class PeerQuotationCacheClientTests {
+
+    private static final String QUOTATION_CODE = "c0ffee";
+
+    private static final String SECRET = "test-secret";
+
+    private PeerQuotationCacheClient peer;
+
+    @BeforeEach
+    void setUp(WireMockRuntimeInfo wmRuntimeInfo) {
+        peer = new PeerQuotationCacheClient("node-b", wmRuntimeInfo.getHttpBaseUrl(), SECRET,
+                Duration.ofSeconds(1), Duration.ofSeconds(60));
+        WireMock.reset();
+    }
+
+    @Test
+    void givenSlowPeer_whenGet_thenMissWithinTimeoutAndPeerSkipped() {
+        stubFor(get(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))
+                .willReturn(aResponse().withFixedDelay(5000).withStatus(404)));
+
+        long start = System.nanoTime();
+        assertEquals(Optional.empty(), peer.get(QUOTATION_CODE));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 3000);
+
+        assertEquals(Optional.empty(), peer.get(QUOTATION_CODE));
+        verify(1, getRequestedFor(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE)));
+    }
+
+    @Test
+    void givenPeerError_whenGet_thenMiss() {
+        stubFor(get(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))
+                .willReturn(aResponse().withStatus(500)));
+
+        assertEquals(Optional.empty(), peer.get(QUOTATION_CODE));
+    }
+
+    @Test
+    void givenMalformedResponse_whenGet_thenMiss() {
+        stubFor(get(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))
+                .willReturn(aResponse().withHeader("Content-Type", "application/json").withBody("{\"amount\": ")));
+
+        assertEquals(Optional.empty(), peer.get(QUOTATION_CODE));
+    }
+
+    @Test
+    void whenGet_thenSendSecret() {
+        stubFor(get(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))
+                .willReturn(aResponse().withStatus(404)));
+
+        assertEquals(Optional.empty(), peer.get(QUOTATION_CODE));
+        verify(getRequestedFor(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))
+                .withHeader(PeerQuotationCacheClient.SECRET_HEADER, equalTo(SECRET)));
+    }
+
+    @Test
+    void whenPut_thenSendSignature() throws InterruptedException {
+        stubFor(put(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))
+                .willReturn(aResponse().withStatus(204)));
+        Quotation quotation = Quotation.builder()
+                .quotationCode(QUOTATION_CODE)
+                .customerId(1L)
+                .productCode("CAR001-01")
+                .amount(1500.0)
+                .expiryTime(LocalDateTime.of(2022, 2, 28, 11, 0))
+                .build();
+
+        peer.put(quotation);
+
+        // sent without waiting for the response
+        for (int i = 0; i < 100 && findAll(putRequestedFor(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))).isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+        verify(putRequestedFor(urlPathEqualTo("/internal/quotation-cache/" + QUOTATION_CODE))
+                .withHeader(PeerQuotationCacheClient.SIGNATURE_HEADER, equalTo(new QuotationSigner(SECRET).sign(quotation))));
+    }
+}
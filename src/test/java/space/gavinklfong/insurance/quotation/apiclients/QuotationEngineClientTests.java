@@ -0,0 +1,146 @@
+package space.gavinklfong.insurance.quotation.apiclients;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.function.client.WebClient;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineRes;
+import space.gavinklfong.insurance.quotation.models.Customer;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@ExtendWith(SpringExtension.class)
+@WireMockTest
+public class QuotationEngineClientTests {
+
+    private static final String PRICES_URI = "/quotation-engine/prices";
+    private static final double QUOTATION_AMOUNT = 1500;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private QuotationEngineClient quotationEngineClient;
+
+    @BeforeEach
+    void setUp(WireMockRuntimeInfo wmRuntimeInfo) {
+        quotationEngineClient = new QuotationEngineClient(WebClient.builder(), wmRuntimeInfo.getHttpBaseUrl(), true, 8, 50, 2000, 64);
+        WireMock.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        quotationEngineClient.close();
+    }
+
+    @Test
+    void givenEngineAvailable_whenGetPrice_thenReturnPrice() throws JsonProcessingException {
+
+        stubPrices(1);
+
+        assertEquals(Optional.of(QUOTATION_AMOUNT), quotationEngineClient.getPrice(generateRequest()));
+    }
+
+    @Test
+    void givenConcurrentRequests_whenGetPrice_thenSendInBatches() throws JsonProcessingException {
+
+        stubPrices(8);
+
+        List<CompletableFuture<Optional<Double>>> results = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> quotationEngineClient.getPrice(generateRequest())))
+                .collect(Collectors.toList());
+
+        results.forEach(result -> assertEquals(Optional.of(QUOTATION_AMOUNT), result.join()));
+
+        int calls = findAll(postRequestedFor(urlEqualTo(PRICES_URI))).size();
+        assertTrue(calls < 8, "expected batched calls but was " + calls);
+    }
+
+    @Test
+    void givenEngineFailed_whenGetPrice_thenThrowException() {
+
+        stubFor(post(PRICES_URI).willReturn(aResponse().withStatus(503)));
+
+        assertThrows(RuntimeException.class, () -> quotationEngineClient.getPrice(generateRequest()));
+    }
+
+    @Test
+    void givenCallerTimedOutBeforeBatchSent_whenGetPrice_thenNotSendRequest(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+
+        stubPrices(1);
+        QuotationEngineClient slowBatchingClient = new QuotationEngineClient(WebClient.builder(),
+                wmRuntimeInfo.getHttpBaseUrl(), true, 8, 500, 50, 64);
+        try {
+            assertThrows(RuntimeException.class, () -> slowBatchingClient.getPrice(generateRequest()));
+
+            Thread.sleep(1000);
+            assertEquals(0, findAll(postRequestedFor(urlEqualTo(PRICES_URI))).size());
+        } finally {
+            slowBatchingClient.close();
+        }
+    }
+
+    @Test
+    void givenEngineHungOnEveryBatch_whenEngineRecovers_thenPriceLaterRequests(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+
+        stubFor(post(PRICES_URI).willReturn(aResponse().withFixedDelay(3000)
+                .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE).withBody("[]")));
+        QuotationEngineClient unbatchedClient = new QuotationEngineClient(WebClient.builder(),
+                wmRuntimeInfo.getHttpBaseUrl(), true, 1, 5, 300, 64);
+        try {
+            // more hung calls than batches sent at a time
+            List<CompletableFuture<Void>> hung = IntStream.range(0, 10)
+                    .mapToObj(i -> CompletableFuture.runAsync(() ->
+                            assertThrows(RuntimeException.class, () -> unbatchedClient.getPrice(generateRequest()))))
+                    .collect(Collectors.toList());
+            hung.forEach(CompletableFuture::join);
+
+            WireMock.reset();
+            stubPrices(1);
+            Thread.sleep(500);
+            assertEquals(Optional.of(QUOTATION_AMOUNT), unbatchedClient.getPrice(generateRequest()));
+        } finally {
+            unbatchedClient.close();
+        }
+    }
+
+    // respond to any batch size up to maxBatchSize with the same amount for every request
+    private void stubPrices(int maxBatchSize) throws JsonProcessingException {
+        List<QuotationEngineRes> responses = new ArrayList<>();
+        for (int batchSize = 1; batchSize <= maxBatchSize; batchSize++) {
+            responses.add(QuotationEngineRes.builder().amount(QUOTATION_AMOUNT).build());
+            stubFor(post(PRICES_URI)
+                    .withRequestBody(matchingJsonPath("$.length()", equalTo(String.valueOf(batchSize))))
+                    .willReturn(aResponse()
+                            .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                            .withBody(objectMapper.writeValueAsString(responses))));
+        }
+    }
+
+    private QuotationEngineReq generateRequest() {
+        return QuotationEngineReq.builder()
+                .customer(Customer.builder().id(1L).name("Customer").dob(LocalDate.of(1980, 1, 1)).build())
+                .product(Product.builder().productCode("CAR001-01").listedPrice(QUOTATION_AMOUNT).build())
+                .postCode("SW20")
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.InMemoryQuotationCacheNode;
+import space.gavinklfong.insurance.quotation.repositories.OffHeapQuotationIndex;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lookups and replacements on a million active quotations held on the heap and off the heap.
+ * Compare the GC counts and times with the GC profiler:
+ *
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.args="ActiveQuotationIndexBenchmark -prof gc"
+ *
+ * This measures the indexes alone. The service keeps no other copies of the active quotations on
+ * the heap only with the off-heap index enabled: then the response cache is off, the reuse index
+ * keeps only codes and the shared cache partition of the instance is the off-heap index. The
+ * idempotency keys in use still hold their quotations on the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-XX:MaxDirectMemorySize=512m"})
+@Threads(2)
+public class ActiveQuotationIndexBenchmark {
+
+    private static final int QUOTATIONS = 1_000_000;
+
+    private static final String[] PRODUCT_CODES = {"CAR001-01", "CAR001-02", "HOME001-01", "TR001-01"};
+
+    @Param({"heap", "offHeap"})
+    private String indexType;
+
+    private String[] codes;
+
+    private Function<String, Optional<Quotation>> find;
+
+    private Consumer<Quotation> put;
+
+    @Setup
+    public void setUp() {
+        Clock clock = Clock.systemDefaultZone();
+        if (indexType.equals("offHeap")) {
+            OffHeapQuotationIndex index = new OffHeapQuotationIndex(true, QUOTATIONS, clock);
+            find = index::find;
+            put = index::put;
+        } else {
+            InMemoryQuotationCacheNode index = new InMemoryQuotationCacheNode("local", QUOTATIONS * 2, clock);
+            find = index::get;
+            put = index::put;
+        }
+
+        codes = new String[QUOTATIONS];
+        for (int i = 0; i < QUOTATIONS; i++) {
+            codes[i] = UUID.randomUUID().toString();
+            put.accept(quotation(codes[i]));
+        }
+    }
+
+    @Benchmark
+    public Optional<Quotation> find() {
+        return find.apply(codes[ThreadLocalRandom.current().nextInt(QUOTATIONS)]);
+    }
+
+    // a quotation replaced by a new one, as the active set turns over
+    @Benchmark
+    public void replace() {
+        put.accept(quotation(codes[ThreadLocalRandom.current().nextInt(QUOTATIONS)]));
+    }
+
+    private static Quotation quotation(String quotationCode) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Quotation.builder()
+                .quotationCode(quotationCode)
+                .amount(random.nextDouble(500, 5000))
+                .expiryTime(LocalDateTime.now().plusMinutes(60))
+                .productCode(PRODUCT_CODES[random.nextInt(PRODUCT_CODES.length)])
+                .customerId(random.nextLong(1, 100_000))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import space.gavinklfong.insurance.quotation.apiclients.ProductSrvClient;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent product lookups against a local product service stub by protocol and compression.
+ *
+ * The connections opened and the bytes sent by the stub per lookup are printed on tear down:
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.args="DownstreamProtocolBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class DownstreamProtocolBenchmark {
+
+    @Param({"HTTP11", "H2C"})
+    private String protocols;
+
+    @Param({"false", "true"})
+    private boolean compress;
+
+    @Param({"16", "2"})
+    private int maxConnections;
+
+    private final AtomicLong connections = new AtomicLong();
+
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private DisposableServer productSrv;
+
+    private ProductSrvClient productSrvClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        // outside Spring Boot logback logs everything at DEBUG
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        String[] postCodes = new String[500];
+        for (int i = 0; i < postCodes.length; i++) {
+            postCodes[i] = String.format("SW%03d", i);
+        }
+        byte[] product = new ObjectMapper().writeValueAsBytes(Product.builder()
+                .productCode("CAR001-01")
+                .productPlan("Premier")
+                .productClass("Online")
+                .postCodesInService(postCodes)
+                .listedPrice(1500.0)
+                .postCodesWithDiscount(Arrays.copyOfRange(postCodes, 100, 150))
+                .postCodeDiscountRate(0.1)
+                .build());
+
+        productSrv = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .compress(1024)
+                .doOnChannelInit((observer, channel, remoteAddress) -> {
+                    connections.incrementAndGet();
+                    channel.pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+                        @Override
+                        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                            if (msg instanceof ByteBuf) {
+                                bytesSent.addAndGet(((ByteBuf) msg).readableBytes());
+                            }
+                            super.write(ctx, msg, promise);
+                        }
+                    });
+                })
+                .route(routes -> routes
+                        .get("/products/{id}", (request, response) -> {
+                            requests.incrementAndGet();
+                            return response
+                                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                    .sendByteArray(Mono.just(product));
+                        }))
+                .bindNow();
+
+        productSrvClient = new ProductSrvClient(WebClient.builder(), "http://localhost:" + productSrv.port(), false, protocols, compress, maxConnections);
+        // an established connection, so that HTTP/2 multiplexes onto it rather than racing to open one per thread
+        productSrvClient.getProduct("CAR001-01");
+    }
+
+    @TearDown
+    public void tearDown() {
+        productSrv.disposeNow();
+        System.out.printf("%n%s compress=%s maxConnections=%d: %d connections, %d bytes per lookup%n",
+                protocols, compress, maxConnections, connections.get(), bytesSent.get() / Math.max(1, requests.get()));
+    }
+
+    @Benchmark
+    public Product getProduct() {
+        return productSrvClient.getProduct("CAR001-01").orElseThrow();
+    }
+}
@@ -0,0 +1,66 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import org.openjdk.jol.info.GraphLayout;
+import space.gavinklfong.insurance.quotation.models.CompactProduct;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Compares the retained heap of a product catalogue held as {@link Product} against {@link CompactProduct}.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark.main=space.gavinklfong.insurance.quotation.benchmarks.ProductFootprintBenchmark
+ */
+public class ProductFootprintBenchmark {
+
+    private static final int PRODUCTS = 10_000;
+    private static final int REGIONS = 50;
+    private static final int POST_CODES_PER_REGION = 200;
+    private static final int DISCOUNT_POST_CODES_PER_REGION = 20;
+
+    public static void main(String[] args) {
+
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(generateProduct(i));
+        }
+
+        List<CompactProduct> compactProducts = new ArrayList<>(PRODUCTS);
+        for (Product product : products) {
+            compactProducts.add(CompactProduct.from(product));
+        }
+
+        long productBytes = GraphLayout.parseInstance(products).totalSize();
+        long compactBytes = GraphLayout.parseInstance(compactProducts).totalSize();
+
+        System.out.println(format("Products: %d, regions: %d, post codes per region: %d", PRODUCTS, REGIONS, POST_CODES_PER_REGION));
+        System.out.println(format("Product        : %,15d bytes (%,d bytes/product)", productBytes, productBytes / PRODUCTS));
+        System.out.println(format("CompactProduct : %,15d bytes (%,d bytes/product)", compactBytes, compactBytes / PRODUCTS));
+        System.out.println(format("Reduction      : %.1f%%", 100.0 * (productBytes - compactBytes) / productBytes));
+    }
+
+    // every product carries fresh copies of its region's post codes, as a deserialized API response does
+    private static Product generateProduct(int index) {
+        int region = index % REGIONS;
+        return Product.builder()
+                .productCode(format("CAR%03d-%05d", region, index))
+                .productPlan(new String("Home-General"))
+                .productClass(new String("Online"))
+                .postCodesInService(regionPostCodes(region, POST_CODES_PER_REGION))
+                .listedPrice(1000.0 + index)
+                .postCodesWithDiscount(regionPostCodes(region, DISCOUNT_POST_CODES_PER_REGION))
+                .postCodeDiscountRate(0.1)
+                .build();
+    }
+
+    private static String[] regionPostCodes(int region, int count) {
+        String[] postCodes = new String[count];
+        for (int i = 0; i < count; i++) {
+            postCodes[i] = format("R%02dP%03d", region, i);
+        }
+        return postCodes;
+    }
+}
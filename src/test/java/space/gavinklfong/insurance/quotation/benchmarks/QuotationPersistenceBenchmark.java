@@ -0,0 +1,82 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import space.gavinklfong.insurance.quotation.QuotationSrvApplication;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.QuotationStore;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-insert cost of JPA persistence: merge (select before insert), persist, and batched persist.
+ *
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.args="QuotationPersistenceBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuotationPersistenceBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+
+    private ConfigurableApplicationContext context;
+
+    private QuotationStore quotationStore;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(QuotationSrvApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--app.quotation.store.type=jpa",
+                        "--logging.level.space.gavinklfong=WARN");
+        quotationStore = context.getBean(QuotationStore.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // the behaviour before Quotation implemented Persistable
+    @Benchmark
+    public Quotation merge() {
+        Quotation quotation = generateQuotation();
+        quotation.setNew(false);
+        return quotationStore.save(quotation);
+    }
+
+    @Benchmark
+    public Quotation persist() {
+        return quotationStore.save(generateQuotation());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Quotation> persistBatch() {
+        List<Quotation> quotations = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            quotations.add(generateQuotation());
+        }
+        return quotationStore.saveAll(quotations);
+    }
+
+    private Quotation generateQuotation() {
+        return Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .amount(1500.0)
+                .expiryTime(LocalDateTime.now().plusMinutes(60))
+                .productCode("CAR001-01")
+                .customerId(1L)
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
+import space.gavinklfong.insurance.quotation.models.Customer;
+import space.gavinklfong.insurance.quotation.models.Product;
+import space.gavinklfong.insurance.quotation.rules.Eligibility;
+import space.gavinklfong.insurance.quotation.rules.ProductRulePlan;
+import space.gavinklfong.insurance.quotation.rules.QuotationRuleEngine;
+import space.gavinklfong.insurance.quotation.rules.QuotationRuleProperties;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Eligibility check and pricing of a single quote, compared with the previous stream based evaluation.
+ *
+ * Like QuotationService, requestPath looks up the compiled plan of a product which is equal to,
+ * but not the same instance as, the one the plan was compiled from, as each product lookup
+ * deserializes a new one. The copies are made up front so that the measurement only includes
+ * what a request pays for.
+ *
+ * Run with the GC profiler to see the allocation per quote (gc.alloc.rate.norm):
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.args="QuotationPricingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuotationPricingBenchmark {
+
+    private final QuotationRuleEngine ruleEngine = new QuotationRuleEngine(new QuotationRuleProperties());
+
+    private static final int PRODUCT_COPIES = 64;
+
+    private Product product;
+    private Product[] productCopies;
+    private int nextCopy;
+    private QuotationEngineReq engineReq;
+    private LocalDate dob;
+    private LocalDate today;
+    private String postCode;
+
+    @Setup
+    public void setUp() {
+        String[] postCodesInService = new String[200];
+        for (int i = 0; i < postCodesInService.length; i++) {
+            postCodesInService[i] = String.format("SW%03d", i);
+        }
+
+        product = Product.builder()
+                .productCode("CAR001-01")
+                .postCodesInService(postCodesInService)
+                .listedPrice(1500.0)
+                .postCodesWithDiscount(Arrays.copyOfRange(postCodesInService, 100, 120))
+                .postCodeDiscountRate(0.1)
+                .build();
+        productCopies = new Product[PRODUCT_COPIES];
+        for (int i = 0; i < PRODUCT_COPIES; i++) {
+            productCopies[i] = Product.builder()
+                    .productCode(new String(product.getProductCode()))
+                    .postCodesInService(Arrays.stream(postCodesInService).map(String::new).toArray(String[]::new))
+                    .listedPrice(1500.0)
+                    .postCodesWithDiscount(Arrays.stream(product.getPostCodesWithDiscount()).map(String::new).toArray(String[]::new))
+                    .postCodeDiscountRate(0.1)
+                    .build();
+        }
+        dob = LocalDate.of(1980, 6, 15);
+        today = LocalDate.of(2022, 2, 28);
+        // a fresh, lower case instance as it would arrive in a request
+        postCode = new String("sw110");
+        engineReq = QuotationEngineReq.builder()
+                .customer(Customer.builder().id(1L).dob(dob).build())
+                .product(product)
+                .postCode(postCode)
+                .build();
+    }
+
+    @Benchmark
+    public double ruleEngine() {
+        if (ruleEngine.checkEligibility(engineReq, today) != Eligibility.ELIGIBLE) {
+            return -1;
+        }
+        return ruleEngine.price(engineReq, today);
+    }
+
+    @Benchmark
+    public double requestPath() {
+        Product requestProduct = productCopies[nextCopy];
+        nextCopy = (nextCopy + 1) % PRODUCT_COPIES;
+
+        ProductRulePlan plan = ruleEngine.planFor(requestProduct);
+        if (plan.checkEligibility(dob, postCode, today) != Eligibility.ELIGIBLE) {
+            return -1;
+        }
+        return plan.price(dob, postCode, today);
+    }
+
+    @Benchmark
+    public Double streamEvaluation() {
+        Period period = Period.between(dob, LocalDateTime.now().toLocalDate());
+        if (period.getYears() < 18) {
+            return -1.0;
+        }
+        if (!Stream.of(product.getPostCodesInService()).anyMatch(s -> s.equalsIgnoreCase(postCode))) {
+            return -1.0;
+        }
+
+        Double quotationAmount = product.getListedPrice().doubleValue();
+        LocalDateTime now = LocalDateTime.now();
+        if (Arrays.stream(product.getPostCodesWithDiscount()).anyMatch(x -> x.equalsIgnoreCase(postCode))) {
+            quotationAmount *= (1 - product.getPostCodeDiscountRate());
+        }
+        return now.getYear() > 0 ? quotationAmount : 0;
+    }
+}
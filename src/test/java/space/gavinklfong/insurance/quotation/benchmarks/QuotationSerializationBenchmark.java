@@ -0,0 +1,87 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import space.gavinklfong.insurance.quotation.models.Product;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU and bytes per quote of the Jackson set ups: plain JSON, JSON with Afterburner, Smile with Afterburner.
+ *
+ * The encoded sizes are printed on set up, run with the GC profiler for the allocation per operation:
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.args="QuotationSerializationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuotationSerializationBenchmark {
+
+    @Param({"json", "afterburner", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private Quotation quotation;
+
+    private byte[] encodedProduct;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule());
+        if (!"json".equals(format)) {
+            builder.modulesToInstall(new AfterburnerModule());
+        }
+        if ("smile".equals(format)) {
+            builder.factory(new SmileFactory());
+        }
+        objectMapper = builder.build();
+
+        quotation = Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .customerId(1L)
+                .productCode("CAR001-01")
+                .amount(1350.0)
+                .expiryTime(LocalDateTime.of(2022, 2, 28, 10, 0))
+                .build();
+
+        String[] postCodes = new String[200];
+        for (int i = 0; i < postCodes.length; i++) {
+            postCodes[i] = String.format("SW%03d", i);
+        }
+        encodedProduct = objectMapper.writeValueAsBytes(Product.builder()
+                .productCode("CAR001-01")
+                .productPlan("Premier")
+                .productClass("Online")
+                .postCodesInService(postCodes)
+                .listedPrice(1500.0)
+                .postCodesWithDiscount(Arrays.copyOfRange(postCodes, 100, 120))
+                .postCodeDiscountRate(0.1)
+                .build());
+
+        System.out.printf("%n%s: quotation %d bytes, product %d bytes%n",
+                format, objectMapper.writeValueAsBytes(quotation).length, encodedProduct.length);
+    }
+
+    @Benchmark
+    public byte[] writeQuotation() throws IOException {
+        return objectMapper.writeValueAsBytes(quotation);
+    }
+
+    @Benchmark
+    public Product readProduct() throws IOException {
+        return objectMapper.readValue(encodedProduct, Product.class);
+    }
+}
@@ -0,0 +1,76 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import space.gavinklfong.insurance.quotation.QuotationSrvApplication;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.QuotationStore;
+import space.gavinklfong.insurance.quotation.services.QuotationCodeGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save throughput of the quotation store implementations.
+ *
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.args="QuotationStoreBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class QuotationStoreBenchmark {
+
+    @Param({"jpa", "log", "sharded"})
+    private String storeType;
+
+    private Path dataDir;
+
+    private ConfigurableApplicationContext context;
+
+    private QuotationStore quotationStore;
+
+    private QuotationCodeGenerator quotationCodeGenerator;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("quotation-store-benchmark");
+        context = new SpringApplicationBuilder(QuotationSrvApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--app.quotation.store.type=" + storeType,
+                        "--app.quotation.store.log.dir=" + dataDir,
+                        "--app.quotation.store.sharded.shards=4",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.space.gavinklfong=WARN");
+        quotationStore = context.getBean(QuotationStore.class);
+        quotationCodeGenerator = context.getBean(QuotationCodeGenerator.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        Files.walk(dataDir)
+                .sorted(Comparator.reverseOrder())
+                .forEach(path -> path.toFile().delete());
+    }
+
+    @Benchmark
+    public Quotation save() {
+        return quotationStore.save(Quotation.builder()
+                .quotationCode(quotationCodeGenerator.next())
+                .amount(1500.0)
+                .expiryTime(LocalDateTime.now().plusMinutes(60))
+                .productCode("CAR001-01")
+                .customerId(1L)
+                .build());
+    }
+}
@@ -0,0 +1,43 @@
+package space.gavinklfong.insurance.quotation.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import space.gavinklfong.insurance.quotation.QuotationSrvApplication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start up time of the application, in a fresh JVM per measurement, with and without the startup profile.
+ *
+ * mvn -P startup-benchmark verify, result in target/startup-benchmark.json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    @Param({"default", "startup"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext start() {
+        context = new SpringApplicationBuilder(QuotationSrvApplication.class)
+                .profiles(profile)
+                .run("--server.port=0",
+                        "--logging.level.root=WARN");
+        return context;
+    }
+}
@@ -0,0 +1,82 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class AdaptiveConcurrencyLimiterTests {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 8, 100, 0.5, 1);
+
+    @Test
+    void givenLimitReached_whenTryAcquire_thenRejectExceptPriorityHeadroom() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+
+        assertFalse(limiter.tryAcquire(false));
+        assertTrue(limiter.tryAcquire(true));
+        assertFalse(limiter.tryAcquire(true));
+    }
+
+    @Test
+    void givenSlowOrFailedRequests_whenRelease_thenDecreaseLimitDownToMin() {
+        limiter.tryAcquire(false);
+        limiter.release(SLOW, false);
+        assertEquals(2, limiter.getLimit());
+
+        limiter.tryAcquire(false);
+        limiter.release(FAST, true);
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void givenConcurrentSlowRequests_whenRelease_thenDecreaseLimitOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 16, 100, 0.5, 0);
+        for (int i = 0; i < 8; i++) {
+            limiter.tryAcquire(false);
+        }
+        for (int i = 0; i < 8; i++) {
+            limiter.release(SLOW, false);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        // admitted under the decreased limit
+        limiter.tryAcquire(false);
+        limiter.release(0, true);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void givenFastRequestsAtLimit_whenRelease_thenIncreaseLimitUpToMax() {
+        for (int round = 0; round < 50; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                limiter.tryAcquire(false);
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.release(FAST, false);
+            }
+        }
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void givenIdleService_whenRelease_thenKeepLimit() {
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire(false);
+            limiter.release(FAST, false);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+}
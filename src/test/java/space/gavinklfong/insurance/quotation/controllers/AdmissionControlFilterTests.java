@@ -0,0 +1,72 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class AdmissionControlFilterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 1000, 0.9, 1);
+
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(limiter, 2, meterRegistry);
+
+    @Test
+    void givenCapacity_whenFilter_thenPassThroughAndRelease() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/quotations/generate"), response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void givenLimitReached_whenFilterGeneration_thenRejectWithRetryAfter() throws Exception {
+        limiter.tryAcquire(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/quotations/generate"), response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, meterRegistry.get("quotation.admission.rejected").tag("request", "generate").counter().count());
+    }
+
+    @Test
+    void givenLimitReached_whenFilterRead_thenServeWithinHeadroom() throws Exception {
+        limiter.tryAcquire(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/quotations/Q1"), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void givenAsyncGeneration_whenFilter_thenReleaseOnCompletion() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/quotations/generate");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync(req, res));
+        assertEquals(1, limiter.getInFlight());
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,125 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import space.gavinklfong.insurance.quotation.apiclients.PeerQuotationCacheClient;
+import space.gavinklfong.insurance.quotation.apiclients.QuotationSigner;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.QuotationStore;
+import space.gavinklfong.insurance.quotation.services.SharedQuotationCache;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = {QuotationCacheController.class}, properties = "app.quotation.sharedCache.enabled=true")
+public class QuotationCacheControllerTests {
+
+    private static final String SECRET = "test-secret";
+
+    private static final QuotationSigner SIGNER = new QuotationSigner(SECRET);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private SharedQuotationCache sharedCache;
+
+    @MockBean
+    private QuotationStore quotationStore;
+
+    @BeforeEach
+    void setUp() {
+        when(sharedCache.isPeerSecret(any())).thenReturn(false);
+        when(sharedCache.isPeerSecret(SECRET)).thenReturn(true);
+        when(sharedCache.isSignedByPeer(any(), any())).thenAnswer(invocation ->
+                SIGNER.verify(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    @Test
+    void givenNoSecret_whenGetOrPut_thenForbidden() throws Exception {
+        Quotation quotation = quotation();
+
+        mockMvc.perform(get("/internal/quotation-cache/" + quotation.getQuotationCode()))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/internal/quotation-cache/" + quotation.getQuotationCode())
+                .header(PeerQuotationCacheClient.SECRET_HEADER, "wrong")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(quotation)))
+                .andExpect(status().isForbidden());
+
+        verify(sharedCache, never()).putLocal(any());
+    }
+
+    @Test
+    void givenUnsignedQuotation_whenPut_thenConflict() throws Exception {
+        Quotation quotation = quotation();
+
+        mockMvc.perform(put("/internal/quotation-cache/" + quotation.getQuotationCode())
+                .header(PeerQuotationCacheClient.SECRET_HEADER, SECRET)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(quotation)))
+                .andExpect(status().isConflict());
+
+        verify(sharedCache, never()).putLocal(any());
+    }
+
+    @Test
+    void givenQuotationChangedAfterSigning_whenPut_thenConflict() throws Exception {
+        Quotation quotation = quotation();
+        String signature = SIGNER.sign(quotation);
+        quotation.setAmount(1.0);
+
+        mockMvc.perform(put("/internal/quotation-cache/" + quotation.getQuotationCode())
+                .header(PeerQuotationCacheClient.SECRET_HEADER, SECRET)
+                .header(PeerQuotationCacheClient.SIGNATURE_HEADER, signature)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(quotation)))
+                .andExpect(status().isConflict());
+
+        verify(sharedCache, never()).putLocal(any());
+    }
+
+    @Test
+    void givenSignedQuotation_whenPut_thenCacheWithoutStoreRead() throws Exception {
+        Quotation quotation = quotation();
+
+        mockMvc.perform(put("/internal/quotation-cache/" + quotation.getQuotationCode())
+                .header(PeerQuotationCacheClient.SECRET_HEADER, SECRET)
+                .header(PeerQuotationCacheClient.SIGNATURE_HEADER, SIGNER.sign(quotation))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(quotation)))
+                .andExpect(status().isNoContent());
+
+        verify(sharedCache).putLocal(quotation);
+        verifyNoInteractions(quotationStore);
+    }
+
+    private Quotation quotation() {
+        return Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .customerId(1L)
+                .productCode("CAR001-01")
+                .amount(1500.0)
+                .expiryTime(LocalDateTime.now().plusMinutes(60).truncatedTo(ChronoUnit.SECONDS))
+                .build();
+    }
+}
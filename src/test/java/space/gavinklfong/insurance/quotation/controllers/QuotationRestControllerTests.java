@@ -1,31 +1,58 @@
 package space.gavinklfong.insurance.quotation.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.github.javafaker.Faker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import space.gavinklfong.insurance.quotation.AppConfig;
 import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
 import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.models.QuotationCode;
+import space.gavinklfong.insurance.quotation.repositories.ShardedQuotationStore;
+import space.gavinklfong.insurance.quotation.services.QuotationFeed;
+import space.gavinklfong.insurance.quotation.services.QuotationJobService;
+import space.gavinklfong.insurance.quotation.services.QuotationRateLimiter;
 import space.gavinklfong.insurance.quotation.services.QuotationService;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = {QuotationRestController.class})
+@Import({QuotationResponseCache.class, QuotationJobService.class, QuotationStreamPublisher.class, QuotationFeed.class,
+        QuotationRequestExecutor.class, SimpleMeterRegistry.class, AppConfig.class})
 public class QuotationRestControllerTests {
 
     @Autowired
@@ -34,6 +61,12 @@ public class QuotationRestControllerTests {
     @MockBean
     private QuotationService quotationService;
 
+    @MockBean
+    private QuotationRateLimiter rateLimiter;
+
+    @Autowired
+    private QuotationFeed quotationFeed;
+
     private Faker faker = new Faker();
 
     @Test
@@ -64,10 +97,26 @@ public class QuotationRestControllerTests {
 
     }
 
+    @Test
+    void fetchQuotationOfUnknownShard() throws Exception {
+
+        final String QUOTATION_CODE = QuotationCode.generate(5, 0, System.currentTimeMillis(), 1L);
+
+        ShardedQuotationStore quotationStore = new ShardedQuotationStore(List.of(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "")));
+        when(quotationService.fetchQuotation(anyString()))
+                .thenAnswer(invocation -> quotationStore.findById(invocation.getArgument(0)));
+
+        mockMvc.perform(
+                get("/quotations/" + QUOTATION_CODE)
+        )
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void generateQuotation() throws Exception {
 
-        when(quotationService.generateQuotation(any(QuotationReq.class)))
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class), nullable(String.class)))
                 .thenAnswer(invocation -> {
                             QuotationReq req = (QuotationReq) invocation.getArgument(0);
 
@@ -88,14 +137,228 @@ public class QuotationRestControllerTests {
 
         ObjectMapper mapper = new ObjectMapper();
 
-        mockMvc.perform(
+        MvcResult result = mockMvc.perform(
                 post("/quotations/generate")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(mapper.writeValueAsString(req))
         )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andDo((print()))
                 .andExpect(status().isOk());
 
     }
 
+    @Test
+    void generateQuotationWithIdempotencyKey() throws Exception {
+
+        final String IDEMPOTENCY_KEY = "4f1c2a2e-5d0b-4f8e-9a55-1b8f0f9b2c11";
+
+        when(quotationService.generateQuotation(any(QuotationReq.class), eq(IDEMPOTENCY_KEY), nullable(String.class)))
+                .thenReturn(Quotation.builder()
+                        .quotationCode(UUID.randomUUID().toString())
+                        .amount(faker.number().randomDouble(2, 1000, 5000))
+                        .expiryTime(LocalDateTime.now().plusMinutes(10))
+                        .build());
+
+        QuotationReq req = QuotationReq.builder()
+                .postCode(faker.address().zipCode())
+                .customerId(faker.number().randomNumber())
+                .productCode(faker.code().toString())
+                .build();
+
+        MvcResult result = mockMvc.perform(
+                post("/quotations/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(QuotationRestController.IDEMPOTENCY_KEY_HEADER, IDEMPOTENCY_KEY)
+                        .content(new ObjectMapper().writeValueAsString(req))
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andDo((print()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quotationCode").isNotEmpty());
+
+        verify(quotationService).generateQuotation(any(QuotationReq.class), eq(IDEMPOTENCY_KEY), nullable(String.class));
+    }
+
+    @Test
+    void generateQuotationOverRateLimit() throws Exception {
+
+        final String PARTNER_KEY = "partner-1";
+
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class), eq(PARTNER_KEY)))
+                .thenThrow(new RateLimitExceededException("Too many quotation requests for the partner", 2));
+
+        QuotationReq req = QuotationReq.builder()
+                .postCode(faker.address().zipCode())
+                .customerId(faker.number().randomNumber())
+                .productCode(faker.code().toString())
+                .build();
+
+        MvcResult result = mockMvc.perform(
+                post("/quotations/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(QuotationRestController.PARTNER_KEY_HEADER, PARTNER_KEY)
+                        .content(new ObjectMapper().writeValueAsString(req))
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andDo((print()))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+    }
+
+    @Test
+    void fetchQuotationAsSmile() throws Exception {
+
+        final String QUOTATION_CODE = "5f0c8a4e-2b1d-4c7a-9e3f-6d8b7a1c2e90";
+
+        when(quotationService.fetchQuotation(QUOTATION_CODE))
+                .thenReturn(Optional.of(Quotation.builder()
+                        .quotationCode(QUOTATION_CODE)
+                        .productCode("CAR001-004")
+                        .amount(1500.0)
+                        .expiryTime(LocalDateTime.now().plusDays(2))
+                        .customerId(1l)
+                        .build()));
+
+        byte[] content = mockMvc.perform(
+                get("/quotations/" + QUOTATION_CODE)
+                        .accept(QuotationRestController.SMILE_VALUE)
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(QuotationRestController.SMILE_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + QUOTATION_CODE + "-smile\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Quotation quotation = new ObjectMapper(new SmileFactory()).findAndRegisterModules().readValue(content, Quotation.class);
+        assertEquals(QUOTATION_CODE, quotation.getQuotationCode());
+        assertEquals(1500.0, quotation.getAmount());
+    }
+
+    @Test
+    void fetchQuotationNotModified() throws Exception {
+
+        final String QUOTATION_CODE = "9a7d3c1b-8e2f-4b6a-a5c4-3f1e0d9b8c7a";
+
+        when(quotationService.fetchQuotation(QUOTATION_CODE))
+                .thenReturn(Optional.of(Quotation.builder()
+                        .quotationCode(QUOTATION_CODE)
+                        .productCode("CAR001-004")
+                        .amount(1500.0)
+                        .expiryTime(LocalDateTime.now().plusMinutes(30))
+                        .customerId(1l)
+                        .build()));
+
+        String cacheControl = mockMvc.perform(
+                get("/quotations/" + QUOTATION_CODE)
+        )
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + QUOTATION_CODE + "\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+
+        // max-age bounded by the expiry time of the quotation
+        assertTrue(cacheControl.matches("max-age=(17[0-9]{2}|1800), private"), cacheControl);
+
+        mockMvc.perform(
+                get("/quotations/" + QUOTATION_CODE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + QUOTATION_CODE + "\"")
+        )
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        // the second request is answered from the response cache
+        verify(quotationService, times(1)).fetchQuotation(QUOTATION_CODE);
+    }
+
+    @Test
+    void generateQuotationInBackground() throws Exception {
+
+        final String QUOTATION_CODE = "0f9e8d7c-6b5a-4c3d-8e2f-1a0b9c8d7e6f";
+
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class)))
+                .thenReturn(Quotation.builder()
+                        .quotationCode(QUOTATION_CODE)
+                        .productCode("CAR001-004")
+                        .amount(1500.0)
+                        .expiryTime(LocalDateTime.now().plusMinutes(10))
+                        .customerId(1l)
+                        .build());
+
+        QuotationReq req = QuotationReq.builder()
+                .postCode(faker.address().zipCode())
+                .customerId(1l)
+                .productCode("CAR001-004")
+                .build();
+
+        String location = mockMvc.perform(
+                post("/quotations/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(req))
+        )
+                .andDo((print()))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").isNotEmpty())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        // long poll, answered once the job finishes
+        MvcResult poll = mockMvc.perform(
+                get(location).param("wait", "5")
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(poll))
+                .andDo((print()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.quotation.quotationCode").value(QUOTATION_CODE));
+
+        verify(rateLimiter).acquire(eq(1l), nullable(String.class));
+    }
+
+    @Test
+    void fetchUnknownQuotationJob() throws Exception {
+
+        mockMvc.perform(
+                get("/quotations/jobs/" + UUID.randomUUID())
+        )
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void streamQuotationsFromLastEventId() throws Exception {
+
+        quotationFeed.publish(Quotation.builder().quotationCode("Q-STREAM-1").customerId(1l).productCode("CAR001-004").build());
+        quotationFeed.publish(Quotation.builder().quotationCode("Q-STREAM-2").customerId(2l).productCode("CAR001-004").build());
+        quotationFeed.publish(Quotation.builder().quotationCode("Q-STREAM-3").customerId(1l).productCode("CAR001-004").build());
+        String firstEventId = quotationFeed.since(quotationFeed.getLastSequence() - 3, 1).get(0).getId();
+
+        MvcResult stream = mockMvc.perform(
+                get("/quotations/stream")
+                        .param("customerId", "1")
+                        .header(QuotationRestController.LAST_EVENT_ID_HEADER, firstEventId)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // replayed by the dispatcher thread
+        String content = "";
+        for (int i = 0; i < 50 && !content.contains("Q-STREAM-3"); i++) {
+            Thread.sleep(100);
+            content = stream.getResponse().getContentAsString();
+        }
+
+        assertTrue(content.contains("event:quotation"), content);
+        assertTrue(content.contains("\"quotationCode\":\"Q-STREAM-3\""), content);
+        assertFalse(content.contains("Q-STREAM-1"), content);
+        assertFalse(content.contains("Q-STREAM-2"), content);
+    }
 }
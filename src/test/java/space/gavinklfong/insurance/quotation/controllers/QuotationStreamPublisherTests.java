@@ -0,0 +1,115 @@
+package space.gavinklfong.insurance.quotation.controllers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.services.QuotationFeed;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class QuotationStreamPublisherTests {
+
+    private static final int BUFFER_SIZE = 10;
+
+    private final QuotationFeed feed = new QuotationFeed(BUFFER_SIZE, Clock.systemUTC());
+
+    private final CountDownLatch consumerReading = new CountDownLatch(1);
+
+    // the first subscriber stops reading, its sends block, the others read
+    private final Deque<RecordingEmitter> emitters = new ArrayDeque<>();
+
+    private QuotationStreamPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        consumerReading.countDown();
+        publisher.close();
+    }
+
+    @Test
+    void givenConsumerStoppedReading_whenPublish_thenOtherConsumersServedAndStalledConsumerDisconnected() throws Exception {
+        publisher = new QuotationStreamPublisher(feed, new SimpleMeterRegistry(), 10, 1800, 3600, timeout -> {
+            RecordingEmitter emitter = new RecordingEmitter(timeout, emitters.isEmpty() ? consumerReading : null);
+            emitters.add(emitter);
+            return emitter;
+        });
+        publisher.subscribe(null, null, null);
+        publisher.subscribe(null, null, null);
+        RecordingEmitter stalled = emitters.getFirst();
+        RecordingEmitter reading = emitters.getLast();
+
+        feed.publish(quotation(0));
+        await(() -> stalled.sendAttempts.get() == 1);
+        // paced by the reading consumer, which would otherwise fall behind the buffer too
+        for (int i = 1; i <= BUFFER_SIZE * 2; i++) {
+            feed.publish(quotation(i));
+            int published = i + 1;
+            await(() -> reading.sent.get() == published);
+        }
+
+        await(() -> publisher.getSubscriberCount() == 1);
+        assertEquals(1, stalled.sendAttempts.get());
+
+        consumerReading.countDown();
+        await(() -> stalled.completed);
+        assertEquals(1, stalled.sendAttempts.get());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 250 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static Quotation quotation(int i) {
+        return Quotation.builder().quotationCode("Q-" + i).customerId(1L).productCode("CAR001-01").amount(1500.0).build();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch reading;
+
+        private final AtomicInteger sendAttempts = new AtomicInteger();
+
+        private final AtomicInteger sent = new AtomicInteger();
+
+        private volatile boolean completed;
+
+        RecordingEmitter(long timeout, CountDownLatch reading) {
+            super(timeout);
+            this.reading = reading;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sendAttempts.incrementAndGet();
+            if (reading != null) {
+                try {
+                    reading.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.incrementAndGet();
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package space.gavinklfong.insurance.quotation.models;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class CompactProductTests {
+
+    private static final String[] PRODUCT_POST_CODES = {"SW20", "XX1", "SM1", "E12"};
+    private static final String[] PRODUCT_POST_CODES_WITH_DISCOUNT = {"XX1", "E3", "E4"};
+
+    @Test
+    void givenSamePostCodesInDifferentOrderAndCase_whenCreateSet_thenReturnSharedInstance() {
+        PostCodeSet postCodeSet = PostCodeSet.of("SW20", "XX1", "SM1", "E12");
+        PostCodeSet sameSet = PostCodeSet.of("e12", "sm1", "SW20", "xx1", "SW20");
+
+        assertSame(postCodeSet, sameSet);
+        assertEquals(4, sameSet.size());
+    }
+
+    @Test
+    void givenSetNoLongerReferenced_whenGarbageCollected_thenReleasedFromInternPool() throws InterruptedException {
+        WeakReference<PostCodeSet> postCodeSet = new WeakReference<>(PostCodeSet.of(UUID.randomUUID().toString()));
+
+        for (int i = 0; i < 50 && postCodeSet.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(postCodeSet.get());
+    }
+
+    @Test
+    void givenPostCodeSet_whenLookupPostCode_thenMatchIgnoringCase() {
+        PostCodeSet postCodeSet = PostCodeSet.of(PRODUCT_POST_CODES);
+
+        assertTrue(postCodeSet.contains("sw20"));
+        assertTrue(postCodeSet.contains("E12"));
+        assertFalse(postCodeSet.contains("SM3"));
+        assertFalse(postCodeSet.contains(null));
+        assertFalse(PostCodeSet.of((String[]) null).contains("SW20"));
+    }
+
+    @Test
+    void givenProducts_whenConvertToCompactProduct_thenSharePostCodeSets() {
+        CompactProduct product1 = CompactProduct.from(generateProduct("CAR001-01"));
+        CompactProduct product2 = CompactProduct.from(generateProduct("CAR001-02"));
+
+        assertSame(product1.getPostCodesInService(), product2.getPostCodesInService());
+        assertSame(product1.getPostCodesWithDiscount(), product2.getPostCodesWithDiscount());
+        assertEquals(1500, product1.getListedPrice());
+        assertEquals(0.1, product1.getPostCodeDiscountRate());
+    }
+
+    @Test
+    void givenProductWithoutDiscount_whenConvertToCompactProduct_thenDefaultToNoDiscount() {
+        Product product = generateProduct("CAR001-01");
+        product.setPostCodesWithDiscount(null);
+        product.setPostCodeDiscountRate(null);
+
+        CompactProduct compactProduct = CompactProduct.from(product);
+
+        assertTrue(compactProduct.getPostCodesWithDiscount().isEmpty());
+        assertEquals(0, compactProduct.getPostCodeDiscountRate());
+    }
+
+    private Product generateProduct(String productCode) {
+        return Product.builder()
+                .productCode(productCode)
+                .productClass("Online")
+                .productPlan("Home-General")
+                .postCodesInService(PRODUCT_POST_CODES.clone())
+                .listedPrice(1500.0)
+                .postCodesWithDiscount(PRODUCT_POST_CODES_WITH_DISCOUNT.clone())
+                .postCodeDiscountRate(0.1)
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package space.gavinklfong.insurance.quotation.models;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class QuotationCodeTests {
+
+    private static final long TIMESTAMP = 1646042400000L;
+
+    @Test
+    void givenGeneratedCode_whenParse_thenReturnShardNodeAndTimestamp() {
+        String code = QuotationCode.generate(4095, 16383, TIMESTAMP, -1L);
+
+        // still a UUID for clients
+        assertEquals(7, UUID.fromString(code).version());
+
+        QuotationCode parsed = QuotationCode.parse(code).orElseThrow();
+        assertEquals(4095, parsed.getShard());
+        assertEquals(16383, parsed.getNode());
+        assertEquals(TIMESTAMP, parsed.getTimestamp());
+    }
+
+    @Test
+    void givenCodesOfLaterTime_whenCompare_thenSortAfter() {
+        String earlier = QuotationCode.generate(3, 1, TIMESTAMP, -1L);
+        String later = QuotationCode.generate(0, 0, TIMESTAMP + 1, 0L);
+
+        assertTrue(earlier.compareTo(later) < 0);
+    }
+
+    @Test
+    void givenCodeInOtherFormat_whenParse_thenEmpty() {
+        assertTrue(QuotationCode.parse(UUID.randomUUID().toString()).isEmpty());
+        assertTrue(QuotationCode.parse("Q-12345").isEmpty());
+        assertTrue(QuotationCode.parse(null).isEmpty());
+    }
+
+    @Test
+    void givenShardOutOfRange_whenGenerate_thenThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> QuotationCode.generate(QuotationCode.MAX_SHARDS, 0, TIMESTAMP, 0L));
+    }
+}
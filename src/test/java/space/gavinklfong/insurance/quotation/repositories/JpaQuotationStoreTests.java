@@ -0,0 +1,67 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(JpaQuotationStore.class)
+@Tag("IntegrationTest")
+public class JpaQuotationStoreTests {
+
+    @Autowired
+    private JpaQuotationStore quotationStore;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void givenNewQuotation_whenSave_thenPersistAndMarkNotNew() {
+        Quotation quotation = generateQuotation();
+        assertTrue(quotation.isNew());
+
+        Quotation saved = quotationStore.save(quotation);
+        entityManager.flush();
+
+        assertFalse(saved.isNew());
+        assertSame(quotation, saved);
+
+        entityManager.clear();
+        Optional<Quotation> found = quotationStore.findById(quotation.getQuotationCode());
+        assertTrue(found.isPresent());
+        assertFalse(found.get().isNew());
+        assertEquals(quotation, found.get());
+    }
+
+    @Test
+    void givenNewQuotations_whenSaveAll_thenPersistAll() {
+        List<Quotation> quotations = List.of(generateQuotation(), generateQuotation(), generateQuotation());
+
+        quotationStore.saveAll(quotations);
+
+        quotations.forEach(quotation -> assertTrue(quotationStore.findById(quotation.getQuotationCode()).isPresent()));
+    }
+
+    private Quotation generateQuotation() {
+        return Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .amount(1500.0)
+                // the database keeps microseconds at most, a later JDK clock has nanoseconds
+                .expiryTime(LocalDateTime.now().plusMinutes(60).truncatedTo(ChronoUnit.SECONDS))
+                .productCode("CAR001-01")
+                .customerId(1L)
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class LogStructuredQuotationStoreTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2022, 2, 28, 10, 0);
+    private static final Clock CLOCK = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneId.of("UTC"));
+
+    @TempDir
+    Path dataDir;
+
+    private LogStructuredQuotationStore quotationStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        quotationStore = openStore(1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        quotationStore.close();
+    }
+
+    @Test
+    void givenSavedQuotation_whenFindById_thenReturnQuotation() {
+        Quotation quotation = generateQuotation(NOW.plusMinutes(60));
+        quotationStore.save(quotation);
+
+        assertEquals(Optional.of(quotation), quotationStore.findById(quotation.getQuotationCode()));
+        assertTrue(quotationStore.findById(UUID.randomUUID().toString()).isEmpty());
+    }
+
+    @Test
+    void givenSavedQuotations_whenReopen_thenRecoverQuotations() throws IOException {
+        Quotation quotation1 = generateQuotation(NOW.plusMinutes(60));
+        Quotation quotation2 = generateQuotation(NOW.plusMinutes(60)).withQuotationCode("Q-2");
+        quotationStore.save(quotation1);
+        quotationStore.save(quotation2);
+        quotationStore.close();
+
+        quotationStore = openStore(1);
+
+        assertEquals(2, quotationStore.size());
+        assertEquals(Optional.of(quotation1), quotationStore.findById(quotation1.getQuotationCode()));
+        assertEquals(Optional.of(quotation2), quotationStore.findById(quotation2.getQuotationCode()));
+    }
+
+    @Test
+    void givenTornLastRecord_whenReopen_thenRecoverUpToLastCompleteRecord() throws IOException {
+        Quotation quotation = generateQuotation(NOW.plusMinutes(60));
+        quotationStore.save(quotation);
+        quotationStore.save(generateQuotation(NOW.plusMinutes(60)));
+        quotationStore.close();
+
+        // corrupt the checksum of the last record
+        try (FileChannel channel = FileChannel.open(dataDir.resolve(LogStructuredQuotationStore.LOG_FILE), StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 8);
+            channel.write(ByteBuffer.allocate(4).putInt(0, 0xDEAD), 8 + 8 + length.getInt(0) + 4);
+        }
+
+        quotationStore = openStore(1);
+
+        assertEquals(1, quotationStore.size());
+        assertEquals(Optional.of(quotation), quotationStore.findById(quotation.getQuotationCode()));
+        Quotation newQuotation = quotationStore.save(generateQuotation(NOW.plusMinutes(60)));
+        assertTrue(quotationStore.findById(newQuotation.getQuotationCode()).isPresent());
+    }
+
+    @Test
+    void givenExpiredQuotations_whenCompact_thenDropExpiredAndKeepLive() throws IOException {
+        Quotation expired = quotationStore.save(generateQuotation(NOW.minusMinutes(1)));
+        Quotation live = quotationStore.save(generateQuotation(NOW.plusMinutes(60)));
+
+        quotationStore.compact();
+
+        assertTrue(quotationStore.findById(expired.getQuotationCode()).isEmpty());
+        assertEquals(Optional.of(live), quotationStore.findById(live.getQuotationCode()));
+
+        quotationStore.close();
+        quotationStore = openStore(1);
+        assertEquals(1, quotationStore.size());
+    }
+
+    @Test
+    void givenCorruptedRecord_whenCompact_thenFailAndKeepOldLog() throws IOException {
+        int count = 10;
+        for (int i = 0; i < count; i++) {
+            quotationStore.save(generateQuotation(NOW.plusMinutes(60)).withQuotationCode("Q-" + i));
+        }
+
+        // an invalid expiry nano second in the record of Q-5, records of Q-n are 55 bytes each
+        try (FileChannel channel = FileChannel.open(dataDir.resolve(LogStructuredQuotationStore.LOG_FILE), StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 8 + 5 * 55 + 8 + 2 + 3 + 9 + 9);
+        }
+
+        assertThrows(RuntimeException.class, () -> quotationStore.compact());
+
+        for (int i = 0; i < count; i++) {
+            if (i != 5) {
+                assertEquals("Q-" + i, quotationStore.findById("Q-" + i).orElseThrow().getQuotationCode());
+            }
+        }
+        Quotation quotation = quotationStore.save(generateQuotation(NOW.plusMinutes(60)));
+        assertEquals(Optional.of(quotation), quotationStore.findById(quotation.getQuotationCode()));
+        assertFalse(dataDir.resolve(LogStructuredQuotationStore.LOG_FILE + ".compact").toFile().exists());
+    }
+
+    @Test
+    void givenLogFull_whenSave_thenCompactAndGrow() {
+        int count = 20_000;
+        for (int i = 0; i < count; i++) {
+            quotationStore.save(generateQuotation(NOW.plusMinutes(60)));
+        }
+        assertEquals(count, quotationStore.size());
+    }
+
+    private LogStructuredQuotationStore openStore(int capacityInMb) throws IOException {
+        return new LogStructuredQuotationStore(dataDir.toString(), capacityInMb, 0, false, CLOCK);
+    }
+
+    private Quotation generateQuotation(LocalDateTime expiryTime) {
+        return Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .amount(1500.0)
+                .expiryTime(expiryTime)
+                .productCode("CAR001-01")
+                .customerId(1L)
+                .build();
+    }
+}
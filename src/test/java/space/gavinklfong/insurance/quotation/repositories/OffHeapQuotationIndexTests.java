@@ -0,0 +1,132 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Tag("UnitTest")
+public class OffHeapQuotationIndexTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2022, 2, 28, 10, 0);
+
+    private final Clock clock = mock(Clock.class);
+
+    @BeforeEach
+    void setUp() {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        setTime(NOW);
+    }
+
+    @Test
+    void givenQuotationIndexed_whenFind_thenReturnAllFields() {
+        OffHeapQuotationIndex index = new OffHeapQuotationIndex(true, 100, clock);
+        Quotation quotation = quotation(NOW.plusMinutes(60).withNano(123456789));
+        Quotation withoutAmount = quotation(NOW.plusMinutes(60)).withQuotationCode(UUID.randomUUID().toString());
+        withoutAmount.setAmount(null);
+        withoutAmount.setProductCode("HOME001-01");
+
+        index.put(quotation);
+        index.put(withoutAmount);
+
+        Quotation found = index.find(quotation.getQuotationCode()).orElseThrow();
+        assertEquals(quotation, found);
+        assertFalse(found.isNew());
+        assertEquals(withoutAmount, index.find(withoutAmount.getQuotationCode()).orElseThrow());
+        assertTrue(index.find(UUID.randomUUID().toString()).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void givenQuotationExpired_whenFind_thenNotFoundAndSlotReused() {
+        OffHeapQuotationIndex index = new OffHeapQuotationIndex(true, 3, clock);
+        assertEquals(4, index.capacity());
+
+        Quotation expiring = quotation(NOW.plusMinutes(1));
+        index.put(expiring);
+        index.put(quotation(NOW.plusMinutes(60)));
+        index.put(quotation(NOW.plusMinutes(60)));
+
+        // full, skipped
+        Quotation skipped = quotation(NOW.plusMinutes(60));
+        index.put(skipped);
+        assertTrue(index.find(skipped.getQuotationCode()).isEmpty());
+
+        setTime(NOW.plusMinutes(1));
+        assertTrue(index.find(expiring.getQuotationCode()).isEmpty());
+
+        index.put(skipped);
+        assertEquals(skipped, index.find(skipped.getQuotationCode()).orElseThrow());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void givenFullOfExpiredQuotations_whenPut_thenPurgedAndLiveQuotationsFound() {
+        OffHeapQuotationIndex index = new OffHeapQuotationIndex(true, 48, clock);
+        List<Quotation> live = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            Quotation quotation = quotation(NOW.plusMinutes(i % 2 == 0 ? 1 : 60));
+            index.put(quotation);
+            if (i % 2 == 1) {
+                live.add(quotation);
+            }
+        }
+
+        setTime(NOW.plusMinutes(1));
+        for (int i = 0; i < 24; i++) {
+            Quotation quotation = quotation(NOW.plusMinutes(60));
+            index.put(quotation);
+            live.add(quotation);
+        }
+
+        live.forEach(quotation -> assertEquals(quotation, index.find(quotation.getQuotationCode()).orElseThrow()));
+        assertEquals(48, index.size());
+    }
+
+    @Test
+    void givenCodeNotUuidOrIndexDisabled_whenPut_thenNotIndexed() {
+        OffHeapQuotationIndex index = new OffHeapQuotationIndex(true, 100, clock);
+        Quotation legacy = quotation(NOW.plusMinutes(60)).withQuotationCode("Q-0001");
+        Quotation upperCase = quotation(NOW.plusMinutes(60));
+        upperCase.setQuotationCode(upperCase.getQuotationCode().toUpperCase());
+
+        index.put(legacy);
+        index.put(upperCase);
+        assertEquals(0, index.size());
+
+        OffHeapQuotationIndex disabled = new OffHeapQuotationIndex(false, 100, clock);
+        Quotation quotation = quotation(NOW.plusMinutes(60));
+        disabled.put(quotation);
+        assertTrue(disabled.find(quotation.getQuotationCode()).isEmpty());
+    }
+
+    private void setTime(LocalDateTime time) {
+        Instant instant = time.toInstant(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(instant);
+        when(clock.millis()).thenReturn(instant.toEpochMilli());
+    }
+
+    private static Quotation quotation(LocalDateTime expiryTime) {
+        Quotation quotation = Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .amount(1500.0)
+                .expiryTime(expiryTime)
+                .productCode("CAR001-01")
+                .customerId(1L)
+                .build();
+        quotation.setNew(false);
+        return quotation;
+    }
+}
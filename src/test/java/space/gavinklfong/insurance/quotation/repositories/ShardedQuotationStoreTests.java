@@ -0,0 +1,126 @@
+package space.gavinklfong.insurance.quotation.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.models.QuotationCode;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("IntegrationTest")
+public class ShardedQuotationStoreTests {
+
+    private static final int SHARDS = 3;
+
+    private List<DriverManagerDataSource> dataSources;
+
+    private ShardedQuotationStore quotationStore;
+
+    @BeforeEach
+    void setUp() {
+        String database = UUID.randomUUID().toString();
+        dataSources = IntStream.range(0, SHARDS)
+                .mapToObj(shard -> new DriverManagerDataSource("jdbc:h2:mem:" + database + "-" + shard + ";DB_CLOSE_DELAY=-1", "sa", ""))
+                .collect(Collectors.toList());
+        quotationStore = new ShardedQuotationStore(dataSources);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        dataSources.forEach(dataSource -> new JdbcTemplate(dataSource).execute("shutdown"));
+        quotationStore.close();
+    }
+
+    @Test
+    void givenQuotationsOfAllShards_whenSave_thenStoreOnShardInCode() {
+        List<Quotation> quotations = IntStream.range(0, SHARDS * 2)
+                .mapToObj(i -> quotation(i % SHARDS))
+                .collect(Collectors.toList());
+        quotations.forEach(quotationStore::save);
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(2, count(shard));
+        }
+        for (Quotation quotation : quotations) {
+            Quotation found = quotationStore.findById(quotation.getQuotationCode()).orElseThrow();
+            assertEquals(quotation.getAmount(), found.getAmount());
+            assertEquals(quotation.getExpiryTime(), found.getExpiryTime());
+            assertEquals(quotation.getCustomerId(), found.getCustomerId());
+            assertFalse(found.isNew());
+        }
+    }
+
+    @Test
+    void givenBatch_whenSaveAll_thenStoreOnShardInCode() {
+        List<Quotation> quotations = IntStream.range(0, 30)
+                .mapToObj(i -> quotation(i % SHARDS))
+                .collect(Collectors.toList());
+
+        quotationStore.saveAll(quotations);
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(10, count(shard));
+        }
+    }
+
+    @Test
+    void givenCodeWithoutShard_whenSaveAndFind_thenFound() {
+        Quotation quotation = quotation(0);
+        quotation.setQuotationCode(UUID.randomUUID().toString());
+
+        quotationStore.save(quotation);
+
+        assertTrue(quotationStore.findById(quotation.getQuotationCode()).isPresent());
+        assertTrue(quotationStore.findById(UUID.randomUUID().toString()).isEmpty());
+    }
+
+    @Test
+    void givenExistingQuotation_whenSave_thenUpdate() {
+        Quotation quotation = quotationStore.save(quotation(1));
+        quotation.setAmount(999.0);
+
+        quotationStore.save(quotation);
+
+        assertEquals(999.0, quotationStore.findById(quotation.getQuotationCode()).orElseThrow().getAmount());
+        assertEquals(1, count(1));
+    }
+
+    @Test
+    void givenCodeOfRemovedShard_whenSave_thenFail() {
+        Quotation quotation = quotation(SHARDS);
+
+        assertThrows(IllegalStateException.class, () -> quotationStore.save(quotation));
+        assertThrows(IllegalStateException.class, () -> quotationStore.saveAll(List.of(quotation)));
+    }
+
+    @Test
+    void givenCodeOfRemovedShard_whenFind_thenNotFound() {
+        assertTrue(quotationStore.findById(quotation(SHARDS).getQuotationCode()).isEmpty());
+    }
+
+    private int count(int shard) {
+        return new JdbcTemplate(dataSources.get(shard)).queryForObject("select count(*) from quotation", Integer.class);
+    }
+
+    private static Quotation quotation(int shard) {
+        return Quotation.builder()
+                .quotationCode(QuotationCode.generate(shard, 0, System.currentTimeMillis(), ThreadLocalRandom.current().nextLong()))
+                .customerId(1L)
+                .productCode("CAR001-01")
+                .amount(1500.0)
+                .expiryTime(LocalDateTime.of(2022, 2, 28, 11, 0))
+                .build();
+    }
+}
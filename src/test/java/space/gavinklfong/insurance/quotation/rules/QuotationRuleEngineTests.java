@@ -0,0 +1,108 @@
+package space.gavinklfong.insurance.quotation.rules;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
+import space.gavinklfong.insurance.quotation.models.Customer;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class QuotationRuleEngineTests {
+
+    private static final LocalDate TODAY = LocalDate.of(2022, 2, 28);
+    private static final String POST_CODE = "SW20";
+    private static final String POST_CODE_OUT_SCOPE = "SM3";
+    private static final String POST_CODE_WITH_DISCOUNT = "XX1";
+    private static final double PRODUCT_LISTED_PRICE = 1500;
+    private static final double PRODUCT_POST_CODE_DISCOUNT = 0.1;
+
+    private final QuotationRuleEngine ruleEngine = new QuotationRuleEngine(new QuotationRuleProperties());
+
+    @Test
+    void givenBirthdays_whenCalculateAge_thenMatchPeriodYears() {
+        LocalDate[] dobs = {
+                LocalDate.of(2004, 2, 28), LocalDate.of(2004, 2, 29), LocalDate.of(2004, 3, 1),
+                LocalDate.of(2004, 1, 31), LocalDate.of(1950, 12, 31), TODAY
+        };
+        for (LocalDate dob : dobs) {
+            assertEquals(Period.between(dob, TODAY).getYears(), ProductRulePlan.ageInYears(dob, TODAY), dob.toString());
+        }
+    }
+
+    @Test
+    void givenCustomerTurning18Tomorrow_whenCheckEligibility_thenUnderAge() {
+        assertEquals(Eligibility.UNDER_AGE,
+                ruleEngine.checkEligibility(request(TODAY.minusYears(18).plusDays(1), POST_CODE), TODAY));
+        assertEquals(Eligibility.ELIGIBLE,
+                ruleEngine.checkEligibility(request(TODAY.minusYears(18), POST_CODE), TODAY));
+    }
+
+    @Test
+    void givenPostCodeOutOfScope_whenCheckEligibility_thenPostCodeOutOfService() {
+        assertEquals(Eligibility.POST_CODE_OUT_OF_SERVICE,
+                ruleEngine.checkEligibility(request(TODAY.minusYears(30), POST_CODE_OUT_SCOPE), TODAY));
+    }
+
+    @Test
+    void givenDefaultRules_whenPrice_thenApplyProductPostCodeDiscountOnly() {
+        assertEquals(PRODUCT_LISTED_PRICE, ruleEngine.price(request(TODAY.minusYears(30), POST_CODE), TODAY));
+        assertEquals(PRODUCT_LISTED_PRICE * (1 - PRODUCT_POST_CODE_DISCOUNT),
+                ruleEngine.price(request(TODAY.minusYears(30), POST_CODE_WITH_DISCOUNT.toLowerCase()), TODAY));
+    }
+
+    @Test
+    void givenConfiguredRules_whenPrice_thenApplyAgeBandSurchargeAndDiscounts() {
+        QuotationRuleProperties properties = new QuotationRuleProperties();
+        properties.setMinimumAge(21);
+        properties.setAgeBands(List.of(new QuotationRuleProperties.AgeBand(21, 25, 1.5)));
+        properties.setPostCodeDiscounts(List.of(new QuotationRuleProperties.PostCodeDiscount(List.of(POST_CODE_WITH_DISCOUNT), 0.2)));
+        properties.setProductClassSurcharges(Map.of("Online", 0.1));
+        ruleEngine.reload(properties);
+
+        assertEquals(Eligibility.UNDER_AGE, ruleEngine.checkEligibility(request(TODAY.minusYears(20), POST_CODE), TODAY));
+        assertEquals(PRODUCT_LISTED_PRICE * 1.1 * 1.5,
+                ruleEngine.price(request(TODAY.minusYears(22), POST_CODE), TODAY), 0.0001);
+        assertEquals(PRODUCT_LISTED_PRICE * 1.1 * (1 - PRODUCT_POST_CODE_DISCOUNT) * (1 - 0.2),
+                ruleEngine.price(request(TODAY.minusYears(40), POST_CODE_WITH_DISCOUNT), TODAY), 0.0001);
+    }
+
+    @Test
+    void givenUnchangedProduct_whenPlan_thenReuseCompiledPlanUntilReload() {
+        ProductRulePlan plan = ruleEngine.planFor(generateProduct());
+
+        assertSame(plan, ruleEngine.planFor(generateProduct()));
+
+        Product changedProduct = generateProduct();
+        changedProduct.setListedPrice(2000.0);
+        assertNotSame(plan, ruleEngine.planFor(changedProduct));
+
+        ruleEngine.reload(new QuotationRuleProperties());
+        assertNotSame(plan, ruleEngine.planFor(generateProduct()));
+    }
+
+    private QuotationEngineReq request(LocalDate dob, String postCode) {
+        return QuotationEngineReq.builder()
+                .customer(Customer.builder().id(1L).dob(dob).build())
+                .product(generateProduct())
+                .postCode(postCode)
+                .build();
+    }
+
+    private Product generateProduct() {
+        return Product.builder()
+                .productCode("CAR001-01")
+                .productClass("Online")
+                .postCodesInService(new String[] {POST_CODE, POST_CODE_WITH_DISCOUNT, "SM1", "E12"})
+                .listedPrice(PRODUCT_LISTED_PRICE)
+                .postCodesWithDiscount(new String[] {POST_CODE_WITH_DISCOUNT, "E3", "E4"})
+                .postCodeDiscountRate(PRODUCT_POST_CODE_DISCOUNT)
+                .build();
+    }
+}
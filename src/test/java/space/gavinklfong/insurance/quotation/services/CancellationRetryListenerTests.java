@@ -0,0 +1,86 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class CancellationRetryListenerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CancellationRetryListener listener = new CancellationRetryListener(meterRegistry);
+
+    private final RetryTemplate retryTemplate = RetryTemplate.builder()
+            .maxAttempts(5)
+            .fixedBackoff(10_000L)
+            .withListener(listener)
+            .build();
+
+    @Test
+    void givenCancelledInBackoff_whenRetry_thenInterruptedWithoutFurtherAttempts() throws Exception {
+        QuotationCancellation cancellation = new QuotationCancellation();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch failed = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> request = executor.submit(() -> cancellation.run(() -> retryTemplate.execute(context -> {
+            attempts.incrementAndGet();
+            failed.countDown();
+            throw new IllegalStateException("Downstream unavailable");
+        })));
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertTrue(cancellation.cancel());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> request.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof BackOffInterruptedException, e.getCause().toString());
+        assertEquals(1, attempts.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        assertFalse(cancellation.cancel());
+        assertEquals(1, meterRegistry.counter(CancellationRetryListener.ABANDONED_COUNTER).count());
+        executor.shutdown();
+    }
+
+    @Test
+    void givenCancelledBeforeStart_whenRun_thenNotRun() {
+        QuotationCancellation cancellation = new QuotationCancellation();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertTrue(cancellation.cancel());
+
+        assertThrows(CancellationException.class, () -> cancellation.run(() -> attempts.incrementAndGet()));
+        assertEquals(0, attempts.get());
+    }
+
+    @Test
+    void givenCancelledDuringAttempt_whenAttemptFailed_thenNoRetry() throws Exception {
+        QuotationCancellation cancellation = new QuotationCancellation();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> cancellation.run(() -> retryTemplate.execute(context -> {
+            attempts.incrementAndGet();
+            cancellation.cancel();
+            throw new IllegalStateException("Downstream unavailable");
+        })));
+
+        assertEquals(1, attempts.get());
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(1, meterRegistry.counter(CancellationRetryListener.ABANDONED_COUNTER).count());
+    }
+}
@@ -0,0 +1,42 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class LogRateLimiterTests {
+
+    private static final long WINDOW = 1000;
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private final LogRateLimiter rateLimiter = new LogRateLimiter(2, WINDOW, nanoTime::get);
+
+    @Test
+    void givenBudgetUsedUp_whenTryAcquire_thenSuppressAndCount() {
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+
+        assertEquals(2, rateLimiter.drainSuppressed());
+        assertEquals(0, rateLimiter.drainSuppressed());
+    }
+
+    @Test
+    void givenNextWindow_whenTryAcquire_thenBudgetRestored() {
+        rateLimiter.tryAcquire();
+        rateLimiter.tryAcquire();
+        assertFalse(rateLimiter.tryAcquire());
+
+        nanoTime.addAndGet(WINDOW);
+
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+    }
+}
@@ -0,0 +1,201 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import space.gavinklfong.insurance.quotation.apiclients.ProductSrvClient;
+import space.gavinklfong.insurance.quotation.dtos.ProductChange;
+import space.gavinklfong.insurance.quotation.models.Product;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Tag("UnitTest")
+public class ProductCatalogueSyncTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ProductSrvClient productSrvClient = mock(ProductSrvClient.class);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2022-02-28T10:00:00Z"));
+
+    @TempDir
+    Path dataDir;
+
+    private Path feedFile;
+
+    private ProductCatalogueSync catalogueSync;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        feedFile = dataDir.resolve("product-changes.jsonl");
+        appendChange(1, "CAR001-01", product("CAR001-01", 1500.0));
+
+        FileProductChangeFeed changeFeed = new FileProductChangeFeed(feedFile.toString(), objectMapper);
+        catalogueSync = new ProductCatalogueSync(productSrvClient, Optional.of(changeFeed), new SimpleMeterRegistry(),
+                false, 1000, 3600, 30, 0.5, 1000, clock);
+    }
+
+    @Test
+    void givenChangeDuringSnapshot_whenSync_thenCatchUpFromFeedPositionBeforeSnapshot() {
+        when(productSrvClient.getProducts()).thenAnswer(invocation -> {
+            // withdrawn while the snapshot is in flight, the snapshot may or may not include it
+            appendChange(2, "HOME001-01", null);
+            return List.of(product("CAR001-01", 1500.0), product("HOME001-01", 800.0));
+        });
+
+        assertTrue(catalogueSync.getCatalogue().isEmpty());
+        catalogueSync.sync();
+
+        ProductCatalogue catalogue = catalogueSync.getCatalogue().orElseThrow();
+        assertEquals(2, catalogue.getVersion());
+        assertEquals(1, catalogue.size());
+        assertTrue(catalogue.find("HOME001-01").isEmpty());
+    }
+
+    @Test
+    void givenSnapshotLoaded_whenSync_thenApplyChangesToNewCatalogue() throws IOException {
+        when(productSrvClient.getProducts()).thenReturn(List.of(product("CAR001-01", 1500.0)));
+        catalogueSync.sync();
+        ProductCatalogue snapshot = catalogueSync.getCatalogue().orElseThrow();
+
+        appendChange(2, "CAR001-01", product("CAR001-01", 1400.0));
+        appendChange(3, "TR001-01", product("TR001-01", 50.0));
+        catalogueSync.sync();
+
+        ProductCatalogue updated = catalogueSync.getCatalogue().orElseThrow();
+        assertEquals(3, updated.getVersion());
+        assertEquals(1400.0, updated.find("CAR001-01").orElseThrow().getListedPrice());
+        assertTrue(updated.find("TR001-01").isPresent());
+
+        // a reader of the previous version is not affected
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(1500.0, snapshot.find("CAR001-01").orElseThrow().getListedPrice());
+        assertTrue(snapshot.find("TR001-01").isEmpty());
+
+        verify(productSrvClient, times(1)).getProducts();
+    }
+
+    @Test
+    void givenSnapshotFailed_whenSync_thenNoCatalogue() {
+        when(productSrvClient.getProducts()).thenThrow(new RuntimeException("Product service unavailable"));
+
+        assertThrows(RuntimeException.class, () -> catalogueSync.sync());
+        assertTrue(catalogueSync.getCatalogue().isEmpty());
+    }
+
+    @Test
+    void givenEmptySnapshot_whenSync_thenKeepCatalogue() {
+        when(productSrvClient.getProducts())
+                .thenReturn(List.of(product("CAR001-01", 1500.0), product("HOME001-01", 800.0)))
+                .thenReturn(List.of());
+        catalogueSync.sync();
+        ProductCatalogue snapshot = catalogueSync.getCatalogue().orElseThrow();
+
+        clock.advance(Duration.ofSeconds(3600));
+        assertThrows(IllegalStateException.class, () -> catalogueSync.sync());
+
+        assertSame(snapshot, catalogueSync.getCatalogue().orElseThrow());
+    }
+
+    @Test
+    void givenShrunkSnapshot_whenSync_thenKeepCatalogue() {
+        when(productSrvClient.getProducts())
+                .thenReturn(List.of(product("CAR001-01", 1500.0), product("HOME001-01", 800.0), product("TR001-01", 50.0)))
+                .thenReturn(List.of(product("CAR001-01", 1500.0)));
+        catalogueSync.sync();
+
+        clock.advance(Duration.ofSeconds(3600));
+        assertThrows(IllegalStateException.class, () -> catalogueSync.sync());
+
+        assertEquals(3, catalogueSync.getCatalogue().orElseThrow().size());
+    }
+
+    @Test
+    void givenSnapshotDueAndFailing_whenSync_thenApplyChangesAndBackOff() throws IOException {
+        when(productSrvClient.getProducts())
+                .thenReturn(List.of(product("CAR001-01", 1500.0)))
+                .thenThrow(new RuntimeException("Product service unavailable"));
+        catalogueSync.sync();
+
+        clock.advance(Duration.ofSeconds(3600));
+        assertThrows(RuntimeException.class, () -> catalogueSync.sync());
+
+        // changes are applied while the snapshot is retried after 30s, 60s, ...
+        appendChange(2, "TR001-01", product("TR001-01", 50.0));
+        catalogueSync.sync();
+        assertTrue(catalogueSync.getCatalogue().orElseThrow().find("TR001-01").isPresent());
+        verify(productSrvClient, times(2)).getProducts();
+
+        clock.advance(Duration.ofSeconds(30));
+        assertThrows(RuntimeException.class, () -> catalogueSync.sync());
+        verify(productSrvClient, times(3)).getProducts();
+
+        clock.advance(Duration.ofSeconds(30));
+        catalogueSync.sync();
+        verify(productSrvClient, times(3)).getProducts();
+
+        clock.advance(Duration.ofSeconds(30));
+        assertThrows(RuntimeException.class, () -> catalogueSync.sync());
+        verify(productSrvClient, times(4)).getProducts();
+    }
+
+    private void appendChange(long version, String productCode, Product product) throws IOException {
+        String line = objectMapper.writeValueAsString(new ProductChange(version, productCode, product)) + "\n";
+        Files.write(feedFile, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static Product product(String productCode, double listedPrice) {
+        return Product.builder()
+                .productCode(productCode)
+                .postCodesInService(new String[] {"SW20"})
+                .listedPrice(listedPrice)
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
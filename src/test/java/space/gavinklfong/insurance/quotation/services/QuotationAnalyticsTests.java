@@ -0,0 +1,91 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.rules.Eligibility;
+import space.gavinklfong.insurance.quotation.rules.PostCodeDiscount;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Tag("UnitTest")
+public class QuotationAnalyticsTests {
+
+    private static final Instant NOW = Instant.parse("2022-02-28T10:00:00Z");
+
+    private final Clock clock = mock(Clock.class);
+
+    private QuotationAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenReturn(NOW.toEpochMilli());
+        // a 60 second window of 6 buckets
+        analytics = new QuotationAnalytics(true, 60, 6, 2, clock);
+    }
+
+    @Test
+    void givenQuotationsGenerated_whenAggregate_thenCountAndAverageByProductAndDiscount() {
+        analytics.generated(quotation("CAR001-01", 1000.0), PostCodeDiscount.NONE);
+        analytics.generated(quotation("CAR001-01", 2000.0), PostCodeDiscount.PRODUCT);
+        analytics.generated(quotation("HOME001-01", 500.0), PostCodeDiscount.PRODUCT);
+
+        QuotationAnalytics.Aggregate car = analytics.getProducts(false).get("CAR001-01");
+        assertEquals(2, car.getCount());
+        assertEquals(1500.0, car.getAverageAmount());
+        assertEquals(2, analytics.getDiscounts(false).get(PostCodeDiscount.PRODUCT).getCount());
+        assertEquals(1250.0, analytics.getDiscounts(true).get(PostCodeDiscount.PRODUCT).getAverageAmount());
+        assertEquals(0, analytics.getDiscounts(true).get(PostCodeDiscount.RULE).getCount());
+    }
+
+    @Test
+    void givenWindowPassed_whenAggregate_thenOnlyTotalsKept() {
+        analytics.generated(quotation("CAR001-01", 1000.0), PostCodeDiscount.NONE);
+        analytics.rejected(Eligibility.UNDER_AGE);
+
+        advance(Duration.ofSeconds(30));
+        analytics.generated(quotation("CAR001-01", 2000.0), PostCodeDiscount.NONE);
+        analytics.rejected(Eligibility.POST_CODE_OUT_OF_SERVICE);
+        assertEquals(2, analytics.getProducts(true).get("CAR001-01").getCount());
+
+        advance(Duration.ofSeconds(40));
+        assertEquals(1, analytics.getProducts(true).get("CAR001-01").getCount());
+        assertEquals(2000.0, analytics.getProducts(true).get("CAR001-01").getAverageAmount());
+        assertEquals(0, analytics.getRejections(true).get(Eligibility.UNDER_AGE).getCount());
+        assertEquals(1, analytics.getRejections(true).get(Eligibility.POST_CODE_OUT_OF_SERVICE).getCount());
+
+        // a bucket reused for a later slot starts from zero
+        analytics.generated(quotation("CAR001-01", 3000.0), PostCodeDiscount.NONE);
+        assertEquals(2, analytics.getProducts(true).get("CAR001-01").getCount());
+        assertEquals(3, analytics.getProducts(false).get("CAR001-01").getCount());
+        assertEquals(1, analytics.getRejections(false).get(Eligibility.UNDER_AGE).getCount());
+        assertEquals(Duration.ofSeconds(60), analytics.getWindow());
+    }
+
+    @Test
+    void givenMaxKeysReached_whenGenerated_thenCountedAsOther() {
+        analytics.generated(quotation("CAR001-01", 1000.0), PostCodeDiscount.NONE);
+        analytics.generated(quotation("HOME001-01", 1000.0), PostCodeDiscount.NONE);
+        analytics.generated(quotation("TR001-01", 1000.0), PostCodeDiscount.NONE);
+        analytics.generated(quotation("TR001-02", 1000.0), PostCodeDiscount.NONE);
+
+        assertEquals(3, analytics.getProducts(false).size());
+        assertEquals(2, analytics.getProducts(false).get(QuotationAnalytics.OTHER).getCount());
+    }
+
+    private void advance(Duration duration) {
+        long millis = clock.millis() + duration.toMillis();
+        when(clock.millis()).thenReturn(millis);
+    }
+
+    private static Quotation quotation(String productCode, double amount) {
+        return Quotation.builder().quotationCode(productCode + "-" + amount).productCode(productCode).amount(amount).build();
+    }
+}
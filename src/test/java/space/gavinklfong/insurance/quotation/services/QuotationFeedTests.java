@@ -0,0 +1,65 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class QuotationFeedTests {
+
+    @Test
+    void givenBufferOverwritten_whenSince_thenReturnBufferedEventsOnly() {
+        QuotationFeed feed = new QuotationFeed(3, "feed1");
+        for (int i = 1; i <= 5; i++) {
+            feed.publish(quotation("Q-" + i));
+        }
+
+        assertEquals(5, feed.getLastSequence());
+        assertEquals(3, feed.getOldestSequence());
+        assertEquals(List.of("Q-3", "Q-4", "Q-5"), codes(feed.since(0, 10)));
+        assertEquals(List.of("Q-4"), codes(feed.since(3, 1)));
+        assertEquals("feed1-5", feed.since(4, 10).get(0).getId());
+        assertTrue(feed.since(5, 10).isEmpty());
+    }
+
+    @Test
+    void givenLastEventId_whenResume_thenResumeAfterBufferedEvent() {
+        QuotationFeed feed = new QuotationFeed(3, "feed1");
+        for (int i = 1; i <= 5; i++) {
+            feed.publish(quotation("Q-" + i));
+        }
+
+        assertEquals(4, feed.resumeAfter("feed1-4"));
+        // no longer buffered, of an earlier run or malformed: replay all buffered events
+        assertEquals(2, feed.resumeAfter("feed1-1"));
+        assertEquals(2, feed.resumeAfter("feed0-4"));
+        assertEquals(2, feed.resumeAfter("feed1-x"));
+        assertEquals(2, feed.resumeAfter("feed1-9"));
+    }
+
+    @Test
+    void givenListener_whenPublish_thenNotified() {
+        QuotationFeed feed = new QuotationFeed(3, "feed1");
+        AtomicInteger notifications = new AtomicInteger();
+        feed.addListener(notifications::incrementAndGet);
+
+        feed.publish(quotation("Q-1"));
+        feed.publish(quotation("Q-2"));
+
+        assertEquals(2, notifications.get());
+    }
+
+    private static Quotation quotation(String quotationCode) {
+        return Quotation.builder().quotationCode(quotationCode).customerId(1L).productCode("CAR001-01").build();
+    }
+
+    private static List<String> codes(List<QuotationFeed.Event> events) {
+        return events.stream().map(event -> event.getQuotation().getQuotationCode()).collect(Collectors.toList());
+    }
+}
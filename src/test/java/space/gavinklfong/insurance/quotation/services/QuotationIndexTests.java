@@ -0,0 +1,120 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.IdempotencyKeyReusedException;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.OffHeapQuotationIndex;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class QuotationIndexTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2022, 2, 28, 10, 0);
+    private static final Clock CLOCK = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneId.of("UTC"));
+
+    private final QuotationIndex quotationIndex = new QuotationIndex(true, 5, 2, CLOCK);
+
+    @Test
+    void givenUnexpiredQuotation_whenFindReusable_thenReturnQuotationIgnoringPostCodeCase() {
+        Quotation quotation = generateQuotation(NOW.plusMinutes(60));
+        quotationIndex.index(request(1L, "sw20"), quotation);
+
+        assertEquals(Optional.of(quotation), quotationIndex.findReusable(request(1L, "SW20")));
+        assertTrue(quotationIndex.findReusable(request(2L, "SW20")).isEmpty());
+    }
+
+    @Test
+    void givenQuotationAboutToExpire_whenFindReusable_thenReturnEmpty() {
+        quotationIndex.index(request(1L, "SW20"), generateQuotation(NOW.plusMinutes(4)));
+
+        assertTrue(quotationIndex.findReusable(request(1L, "SW20")).isEmpty());
+        assertEquals(0, quotationIndex.size());
+    }
+
+    @Test
+    void givenIndexFull_whenIndex_thenPurgeExpiredQuotations() {
+        quotationIndex.index(request(1L, "SW20"), generateQuotation(NOW.minusMinutes(1)));
+        quotationIndex.index(request(2L, "SW20"), generateQuotation(NOW.plusMinutes(60)));
+        quotationIndex.index(request(3L, "SW20"), generateQuotation(NOW.plusMinutes(60)));
+
+        assertEquals(2, quotationIndex.size());
+        assertTrue(quotationIndex.findReusable(request(3L, "SW20")).isPresent());
+    }
+
+    @Test
+    void givenIdempotencyKeysFull_whenClaim_thenPurgeExpiredOrReject() throws Exception {
+        CompletableFuture<Quotation> expired = new CompletableFuture<>();
+        assertTrue(quotationIndex.claim(request(1L, "SW20"), "key-1", expired).isEmpty());
+        expired.complete(generateQuotation(NOW.minusMinutes(1)));
+        assertTrue(quotationIndex.claim(request(2L, "SW20"), "key-2", new CompletableFuture<>()).isEmpty());
+
+        // the expired key makes room
+        assertTrue(quotationIndex.claim(request(3L, "SW20"), "key-3", new CompletableFuture<>()).isEmpty());
+        assertThrows(RateLimitExceededException.class,
+                () -> quotationIndex.claim(request(4L, "SW20"), "key-4", new CompletableFuture<>()));
+    }
+
+    @Test
+    void givenClaimedIdempotencyKey_whenClaimWithOtherRequest_thenReject() throws Exception {
+        CompletableFuture<Quotation> claim = new CompletableFuture<>();
+        quotationIndex.claim(request(1L, "SW20"), "key-1", claim);
+
+        assertEquals(Optional.of(claim), quotationIndex.claim(request(1L, "sw20"), "key-1", new CompletableFuture<>()));
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> quotationIndex.claim(request(1L, "SM1"), "key-1", new CompletableFuture<>()));
+    }
+
+    @Test
+    void givenOffHeapIndex_whenFindReusable_thenReturnQuotationFromOffHeapIndex() {
+        OffHeapQuotationIndex activeQuotations = new OffHeapQuotationIndex(true, 16, CLOCK);
+        QuotationIndex offHeapBacked = new QuotationIndex(true, 5, 2, activeQuotations, CLOCK);
+        Quotation quotation = generateQuotation(NOW.plusMinutes(60));
+        activeQuotations.put(quotation);
+        offHeapBacked.index(request(1L, "SW20"), quotation);
+
+        assertEquals(Optional.of(quotation), offHeapBacked.findReusable(request(1L, "SW20")));
+
+        // dropped from the off-heap index
+        offHeapBacked.index(request(2L, "SW20"), generateQuotation(NOW.plusMinutes(60)));
+        assertTrue(offHeapBacked.findReusable(request(2L, "SW20")).isEmpty());
+        assertEquals(1, offHeapBacked.size());
+    }
+
+    @Test
+    void givenReuseDisabled_whenFindReusable_thenReturnEmpty() {
+        QuotationIndex disabledIndex = new QuotationIndex(false, 5, 100, CLOCK);
+        disabledIndex.index(request(1L, "SW20"), generateQuotation(NOW.plusMinutes(60)));
+
+        assertTrue(disabledIndex.findReusable(request(1L, "SW20")).isEmpty());
+    }
+
+    private QuotationReq request(Long customerId, String postCode) {
+        return QuotationReq.builder()
+                .customerId(customerId)
+                .productCode("CAR001-01")
+                .postCode(postCode)
+                .build();
+    }
+
+    private Quotation generateQuotation(LocalDateTime expiryTime) {
+        return Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .amount(1500.0)
+                .expiryTime(expiryTime)
+                .productCode("CAR001-01")
+                .customerId(1L)
+                .build();
+    }
+}
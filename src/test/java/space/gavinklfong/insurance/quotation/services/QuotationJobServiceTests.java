@@ -0,0 +1,205 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.QuotationJobRejectedException;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
+import space.gavinklfong.insurance.quotation.exceptions.RecordNotFoundException;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Tag("UnitTest")
+public class QuotationJobServiceTests {
+
+    private static final Instant NOW = Instant.parse("2022-02-28T10:00:00Z");
+
+    private final QuotationService quotationService = mock(QuotationService.class);
+
+    private final QuotationRateLimiter rateLimiter = mock(QuotationRateLimiter.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QuotationJobService jobService;
+
+    @AfterEach
+    void tearDown() {
+        jobService.close();
+    }
+
+    @Test
+    void givenSubmitted_whenGenerated_thenJobCompletedWithQuotation() throws Exception {
+        Quotation quotation = Quotation.builder().quotationCode("Q-1").amount(1500.0).build();
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class))).thenReturn(quotation);
+        jobService = jobService(1, 10, Clock.fixed(NOW, ZoneId.of("UTC")));
+
+        QuotationJob job = jobService.submit(request(), "key-1", "partner-1");
+
+        assertEquals(quotation, job.getResult().get(5, TimeUnit.SECONDS));
+        assertEquals(QuotationJobStatus.COMPLETED, job.getStatus());
+        assertNotNull(job.getCompletedTime());
+        assertSame(job, jobService.getJob(job.getId()).orElseThrow());
+        verify(quotationService).generateQuotation(any(QuotationReq.class), nullable(String.class));
+    }
+
+    @Test
+    void givenGenerationFailed_whenPolled_thenJobFailedWithCause() throws Exception {
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class)))
+                .thenThrow(new RecordNotFoundException("Unknown product"));
+        jobService = jobService(1, 10, Clock.fixed(NOW, ZoneId.of("UTC")));
+
+        QuotationJob job = jobService.submit(request(), null, null);
+
+        assertThrows(CompletionException.class, () -> job.getResult().join());
+        assertEquals(QuotationJobStatus.FAILED, job.getStatus());
+        assertTrue(job.getFailure() instanceof RecordNotFoundException);
+    }
+
+    @Test
+    void givenRateLimitExceeded_whenSubmit_thenNoJobQueued() throws Exception {
+        doThrow(new RateLimitExceededException("Too many quotation requests for the customer", 1))
+                .when(rateLimiter).acquire(anyLong(), nullable(String.class));
+        jobService = jobService(1, 10, Clock.fixed(NOW, ZoneId.of("UTC")));
+
+        assertThrows(RateLimitExceededException.class, () -> jobService.submit(request(), null, null));
+        assertEquals(0, jobService.size());
+        verify(quotationService, never()).generateQuotation(any(QuotationReq.class), nullable(String.class));
+    }
+
+    @Test
+    void givenQueueFull_whenSubmit_thenRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class))).thenAnswer(invocation -> {
+            release.await();
+            return Quotation.builder().quotationCode("Q-1").build();
+        });
+        jobService = jobService(1, 1, Clock.fixed(NOW, ZoneId.of("UTC")));
+
+        QuotationJob running = jobService.submit(request(), null, null);
+        QuotationJob queued = jobService.submit(request(), null, null);
+        QuotationJobRejectedException e = assertThrows(QuotationJobRejectedException.class,
+                () -> jobService.submit(request(), null, null));
+
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.counter(QuotationJobService.REJECTED_COUNTER).count());
+        assertEquals(2, jobService.size());
+        verify(rateLimiter, times(2)).acquire(anyLong(), nullable(String.class));
+        assertEquals(QuotationJobStatus.PENDING, queued.getStatus());
+
+        release.countDown();
+        running.getResult().get(5, TimeUnit.SECONDS);
+        queued.getResult().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void givenGenerationFailedWithError_whenPolled_thenJobFailed() throws Exception {
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class)))
+                .thenThrow(new StackOverflowError());
+        jobService = jobService(1, 10, Clock.fixed(NOW, ZoneId.of("UTC")));
+
+        QuotationJob job = jobService.submit(request(), null, null);
+
+        assertThrows(CompletionException.class, () -> job.getResult().join());
+        assertEquals(QuotationJobStatus.FAILED, job.getStatus());
+        assertTrue(job.getFailure() instanceof StackOverflowError);
+    }
+
+    @Test
+    void givenUnfinishedJobPastRetention_whenPurgeExpired_thenJobGone() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class))).thenAnswer(invocation -> {
+            release.await();
+            return Quotation.builder().quotationCode("Q-1").build();
+        });
+        MutableClock clock = new MutableClock(NOW);
+        jobService = jobService(1, 10, clock);
+
+        QuotationJob job = jobService.submit(request(), null, null);
+
+        clock.advance(Duration.ofSeconds(599));
+        jobService.purgeExpired();
+        assertEquals(1, jobService.size());
+
+        clock.advance(Duration.ofSeconds(1));
+        jobService.purgeExpired();
+        assertEquals(0, jobService.size());
+        assertTrue(jobService.getJob(job.getId()).isEmpty());
+
+        release.countDown();
+        job.getResult().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void givenRetentionPassed_whenPolled_thenJobGone() throws Exception {
+        when(quotationService.generateQuotation(any(QuotationReq.class), nullable(String.class)))
+                .thenReturn(Quotation.builder().quotationCode("Q-1").build());
+        MutableClock clock = new MutableClock(NOW);
+        jobService = jobService(1, 10, clock);
+
+        QuotationJob job = jobService.submit(request(), null, null);
+        job.getResult().get(5, TimeUnit.SECONDS);
+
+        clock.advance(Duration.ofSeconds(599));
+        assertTrue(jobService.getJob(job.getId()).isPresent());
+
+        clock.advance(Duration.ofSeconds(1));
+        assertTrue(jobService.getJob(job.getId()).isEmpty());
+        assertEquals(0, jobService.size());
+    }
+
+    private QuotationJobService jobService(int workers, int queueCapacity, Clock clock) {
+        return new QuotationJobService(quotationService, rateLimiter, meterRegistry, workers, queueCapacity, 600, 100, clock);
+    }
+
+    private static QuotationReq request() {
+        return QuotationReq.builder().productCode("TR001-01").customerId(1L).postCode("SW20").build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
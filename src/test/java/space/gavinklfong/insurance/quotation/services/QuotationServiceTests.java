@@ -1,6 +1,7 @@
 package space.gavinklfong.insurance.quotation.services;
 
 import com.github.javafaker.Faker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -11,25 +12,41 @@ import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import space.gavinklfong.insurance.quotation.AppConfig;
 import space.gavinklfong.insurance.quotation.apiclients.CustomerSrvClient;
+import space.gavinklfong.insurance.quotation.apiclients.FaultInjector;
 import space.gavinklfong.insurance.quotation.apiclients.ProductSrvClient;
 import space.gavinklfong.insurance.quotation.apiclients.RetryableCustomerSrvClient;
+import space.gavinklfong.insurance.quotation.apiclients.RetryableQuotationEngineClient;
+import space.gavinklfong.insurance.quotation.dtos.QuotationEngineReq;
 import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.exceptions.IdempotencyKeyReusedException;
 import space.gavinklfong.insurance.quotation.exceptions.QuotationCriteriaNotFulfilledException;
+import space.gavinklfong.insurance.quotation.exceptions.RateLimitExceededException;
 import space.gavinklfong.insurance.quotation.exceptions.RecordNotFoundException;
 import space.gavinklfong.insurance.quotation.models.Customer;
 import space.gavinklfong.insurance.quotation.models.Product;
 import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.JpaQuotationStore;
+import space.gavinklfong.insurance.quotation.repositories.OffHeapQuotationIndex;
 import space.gavinklfong.insurance.quotation.repositories.QuotationRepository;
+import space.gavinklfong.insurance.quotation.rules.Eligibility;
+import space.gavinklfong.insurance.quotation.rules.QuotationRuleEngine;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @Slf4j
@@ -38,7 +55,7 @@ import static org.mockito.Mockito.when;
 @TestPropertySource(properties = {
         "app.quotation.expiryTime=1440"
 })
-@ContextConfiguration(classes = {QuotationService.class, RetryableCustomerSrvClient.class})
+@ContextConfiguration(classes = {QuotationService.class, QuotationRuleEngine.class, QuotationIndex.class, QuotationCodeGenerator.class, QuotationEventLogger.class, QuotationStageRecorder.class, QuotationFeed.class, QuotationAnalytics.class, CancellationRetryListener.class, FaultInjector.class, SharedQuotationCache.class, OffHeapQuotationIndex.class, SimpleMeterRegistry.class, JpaQuotationStore.class, RetryableCustomerSrvClient.class, AppConfig.class})
 @Tag("UnitTest")
 public class QuotationServiceTests {
 
@@ -51,6 +68,15 @@ public class QuotationServiceTests {
     @MockBean
     private ProductSrvClient productSrvClient;
 
+    @MockBean
+    private RetryableQuotationEngineClient quotationEngineClient;
+
+    @MockBean
+    private QuotationRateLimiter rateLimiter;
+
+    @MockBean
+    private ProductCatalogueSync productCatalogueSync;
+
     @Autowired
     private QuotationService quotationService;
 
@@ -69,6 +95,7 @@ public class QuotationServiceTests {
     private static final double PRODUCT_POST_CODE_DISCOUNT = 0.1;
 
     private static final double QUOTATION_AMOUNT_WITH_DISCOUNT = QUOTATION_AMOUNT * (1 - PRODUCT_POST_CODE_DISCOUNT);
+    private static final double QUOTATION_AMOUNT_FROM_ENGINE = 1234.5;
 
     @Test
     void givenEverythingPassed_whenRequestForQuotation_thenReturnListedPrice() throws IOException, RecordNotFoundException, QuotationCriteriaNotFulfilledException {
@@ -93,6 +120,35 @@ public class QuotationServiceTests {
         assertEquals(PRODUCT_CODE, quotation.getProductCode());
     }
 
+    @Test
+    void givenCatalogueLoaded_whenRequestForQuotation_thenNoProductLookup() throws IOException, RecordNotFoundException, QuotationCriteriaNotFulfilledException {
+
+        setupQuotationRepo();
+        setupCustomerSrvClient(CUSTOMER_ID, faker.date().birthday(18, 99)
+                .toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate());
+        when(productCatalogueSync.getCatalogue())
+                .thenReturn(Optional.of(ProductCatalogue.of(1, List.of(generateProduct()), LocalDateTime.now())));
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+        Quotation quotation = quotationService.generateQuotation(req);
+
+        assertEquals(QUOTATION_AMOUNT, quotation.getAmount());
+        verify(productSrvClient, never()).getProduct(anyString());
+
+        QuotationReq unknownProductReq = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode("UNKNOWN-01")
+                .postCode(POST_CODE)
+                .build();
+        assertThrows(RecordNotFoundException.class, () -> quotationService.generateQuotation(unknownProductReq));
+        verify(productSrvClient, never()).getProduct(anyString());
+    }
+
     @Test
     void givenCustomerBelow18_whenRequestForQuotation_thenThrowException() throws IOException, RecordNotFoundException, QuotationCriteriaNotFulfilledException {
 
@@ -107,9 +163,10 @@ public class QuotationServiceTests {
                 .productCode(PRODUCT_CODE)
                 .postCode(POST_CODE)
                 .build();
-        assertThrows(QuotationCriteriaNotFulfilledException.class, () ->
+        QuotationCriteriaNotFulfilledException e = assertThrows(QuotationCriteriaNotFulfilledException.class, () ->
                 quotationService.generateQuotation(req)
         );
+        assertEquals(Eligibility.UNDER_AGE, e.getReason());
     }
 
     @Test
@@ -332,6 +389,175 @@ public class QuotationServiceTests {
         RuntimeException exception = assertThrows(RuntimeException.class, () -> quotationService.generateQuotation(req));
     }
 
+    @Test
+    void givenQuotationEngineAvailable_whenRequestForQuotation_thenReturnEnginePrice() throws IOException, RecordNotFoundException, QuotationCriteriaNotFulfilledException {
+        setupQuotationRepo();
+        setupCustomerSrvClient(CUSTOMER_ID, faker.date().birthday(18, 99)
+                .toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate());
+        setupProductSrvClient();
+        when(quotationEngineClient.isEnabled()).thenReturn(true);
+        when(quotationEngineClient.getPrice(any(QuotationEngineReq.class))).thenReturn(Optional.of(QUOTATION_AMOUNT_FROM_ENGINE));
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+        Quotation quotation = quotationService.generateQuotation(req);
+
+        assertEquals(QUOTATION_AMOUNT_FROM_ENGINE, quotation.getAmount());
+    }
+
+    @Test
+    void givenQuotationEngineFailed_whenRequestForQuotation_thenFallbackToLocalPrice() throws IOException, RecordNotFoundException, QuotationCriteriaNotFulfilledException {
+        setupQuotationRepo();
+        setupCustomerSrvClient(CUSTOMER_ID, faker.date().birthday(18, 99)
+                .toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate());
+        setupProductSrvClient();
+        when(quotationEngineClient.isEnabled()).thenReturn(true);
+        when(quotationEngineClient.getPrice(any(QuotationEngineReq.class))).thenThrow(new RuntimeException("Engine timeout"));
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE_WITH_DISCOUNT)
+                .build();
+        Quotation quotation = quotationService.generateQuotation(req);
+
+        assertEquals(QUOTATION_AMOUNT_WITH_DISCOUNT, quotation.getAmount());
+    }
+
+    @Test
+    void givenSameIdempotencyKey_whenRequestForQuotationTwice_thenReturnSameQuotation() throws Exception {
+        setupQuotationRepo();
+        setupCustomerSrvClient(CUSTOMER_ID, faker.date().birthday(18, 99)
+                .toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate());
+        setupProductSrvClient();
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+        String idempotencyKey = UUID.randomUUID().toString();
+        Quotation quotation = quotationService.generateQuotation(req, idempotencyKey);
+        Quotation retriedQuotation = quotationService.generateQuotation(req, idempotencyKey);
+
+        assertEquals(quotation.getQuotationCode(), retriedQuotation.getQuotationCode());
+        verify(quotationRepo, times(1)).save(any(Quotation.class));
+    }
+
+    @Test
+    void givenIdempotencyKeyUsed_whenRequestForOtherQuotation_thenReject() throws Exception {
+        setupQuotationRepo();
+        setupCustomerSrvClient(CUSTOMER_ID, faker.date().birthday(18, 99)
+                .toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate());
+        setupProductSrvClient();
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+        String idempotencyKey = UUID.randomUUID().toString();
+        quotationService.generateQuotation(req, idempotencyKey);
+
+        QuotationReq otherReq = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode("SM1")
+                .build();
+        assertThrows(IdempotencyKeyReusedException.class, () -> quotationService.generateQuotation(otherReq, idempotencyKey));
+        verify(quotationRepo, times(1)).save(any(Quotation.class));
+    }
+
+    @Test
+    void givenFailedRequestWithIdempotencyKey_whenRetry_thenGenerateQuotation() throws Exception {
+        setupQuotationRepo();
+        setupCustomerSrvClient(CUSTOMER_ID, faker.date().birthday(18, 99)
+                .toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate());
+        when(productSrvClient.getProduct(anyString()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(generateProduct()));
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+        String idempotencyKey = UUID.randomUUID().toString();
+        assertThrows(RecordNotFoundException.class, () -> quotationService.generateQuotation(req, idempotencyKey));
+
+        Quotation quotation = quotationService.generateQuotation(req, idempotencyKey);
+        assertEquals(QUOTATION_AMOUNT, quotation.getAmount());
+    }
+
+    @Test
+    void givenRateLimitExceeded_whenRequestForQuotation_thenRejectBeforeDownstreamCalls() throws RateLimitExceededException {
+        doThrow(new RateLimitExceededException("Too many quotation requests for the customer", 1))
+                .when(rateLimiter).acquire(CUSTOMER_ID, "partner-1");
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+
+        assertThrows(RateLimitExceededException.class, () -> quotationService.generateQuotation(req, null, "partner-1"));
+        verify(customerSrvClient, never()).getCustomer(anyLong());
+        verify(productSrvClient, never()).getProduct(anyString());
+    }
+
+    @Test
+    void givenRateLimitExceeded_whenRetryWithIdempotencyKey_thenReturnSameQuotation() throws Exception {
+        setupQuotationRepo();
+        setupCustomerSrvClient(CUSTOMER_ID, faker.date().birthday(18, 99)
+                .toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate());
+        setupProductSrvClient();
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+        String idempotencyKey = UUID.randomUUID().toString();
+        Quotation quotation = quotationService.generateQuotation(req, idempotencyKey, "partner-1");
+
+        doThrow(new RateLimitExceededException("Too many quotation requests for the customer", 1))
+                .when(rateLimiter).acquire(CUSTOMER_ID, "partner-1");
+        Quotation retriedQuotation = quotationService.generateQuotation(req, idempotencyKey, "partner-1");
+
+        assertEquals(quotation.getQuotationCode(), retriedQuotation.getQuotationCode());
+        verify(rateLimiter, times(1)).acquire(CUSTOMER_ID, "partner-1");
+    }
+
+    @Test
+    void givenRequestCancelled_whenCustomerRetrievalFailed_thenNoRetry() {
+        QuotationCancellation cancellation = new QuotationCancellation();
+        when(customerSrvClient.getCustomer(CUSTOMER_ID)).thenAnswer(invocation -> {
+            // the client disconnects while the first attempt is in flight
+            cancellation.cancel();
+            throw new RuntimeException("Customer service timeout");
+        });
+
+        QuotationReq req = QuotationReq.builder()
+                .customerId(CUSTOMER_ID)
+                .productCode(PRODUCT_CODE)
+                .postCode(POST_CODE)
+                .build();
+
+        assertThrows(RuntimeException.class, () -> cancellation.run(() -> quotationService.generateQuotation(req)));
+        verify(customerSrvClient, times(1)).getCustomer(CUSTOMER_ID);
+        verify(productSrvClient, never()).getProduct(anyString());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
     private void setupCustomerSrvClient(Long customerId, LocalDate dob) throws IOException {
         setupCustomerSrvClient(customerId, dob, 0, true);
     }
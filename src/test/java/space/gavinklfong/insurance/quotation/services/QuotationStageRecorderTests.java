@@ -0,0 +1,72 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.dtos.QuotationReq;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class QuotationStageRecorderTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final QuotationStageRecorder stageRecorder = new QuotationStageRecorder(meterRegistry, 2, 300,
+            Clock.fixed(Instant.parse("2022-02-28T10:00:00Z"), ZoneId.of("UTC")));
+
+    @Test
+    void givenCompletedRequest_whenFinish_thenRecordStagesAndTotal() {
+        QuotationStageRecorder.Recording recording = stageRecorder.start(request(1L));
+        recording.begin(QuotationStage.CUSTOMER);
+        recording.begin(QuotationStage.PRODUCT);
+        recording.finish(Quotation.builder().quotationCode("Q1").build());
+
+        assertEquals(1, meterRegistry.get(QuotationStageRecorder.STAGE_TIMER).tag("stage", "customer").timer().count());
+        assertEquals(1, meterRegistry.get(QuotationStageRecorder.STAGE_TIMER).tag("stage", "product").timer().count());
+        assertEquals(0, meterRegistry.get(QuotationStageRecorder.STAGE_TIMER).tag("stage", "save").timer().count());
+        assertEquals(1, meterRegistry.get(QuotationStageRecorder.TOTAL_TIMER).tag("outcome", "success").timer().count());
+
+        List<SlowQuotationRequest> slowest = stageRecorder.getSlowestRequests();
+        assertEquals(1, slowest.size());
+        assertEquals("Q1", slowest.get(0).getQuotationCode());
+        assertEquals(QuotationStage.values().length, slowest.get(0).getStageMillis().size());
+    }
+
+    @Test
+    void givenFailedStage_whenFinish_thenRecordFailedStage() throws InterruptedException {
+        QuotationStageRecorder.Recording recording = stageRecorder.start(request(1L));
+        recording.begin(QuotationStage.CUSTOMER);
+        Thread.sleep(20);
+        recording.finish(null);
+
+        assertEquals(1, meterRegistry.get(QuotationStageRecorder.STAGE_TIMER).tag("stage", "customer").timer().count());
+        assertEquals(0, meterRegistry.get(QuotationStageRecorder.STAGE_TIMER).tag("stage", "product").timer().count());
+        assertTrue(stageRecorder.getSlowestRequests().get(0).getStageMillis().get("customer") >= 20);
+    }
+
+    @Test
+    void givenMoreRequestsThanKept_whenFinish_thenKeepSlowestFirst() throws InterruptedException {
+        stageRecorder.start(request(1L)).finish(null);
+        QuotationStageRecorder.Recording slow = stageRecorder.start(request(2L));
+        Thread.sleep(20);
+        slow.finish(null);
+        stageRecorder.start(request(3L)).finish(null);
+
+        List<SlowQuotationRequest> slowest = stageRecorder.getSlowestRequests();
+        assertEquals(2, slowest.size());
+        assertEquals(2L, slowest.get(0).getCustomerId());
+        assertTrue(slowest.get(0).getTotalMillis() >= slowest.get(1).getTotalMillis());
+        assertEquals(3, meterRegistry.get(QuotationStageRecorder.TOTAL_TIMER).tag("outcome", "failure").timer().count());
+    }
+
+    private QuotationReq request(Long customerId) {
+        return QuotationReq.builder().customerId(customerId).productCode("CAR001-01").postCode("SW20").build();
+    }
+}
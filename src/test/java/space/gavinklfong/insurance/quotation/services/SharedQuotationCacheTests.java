@@ -0,0 +1,171 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import space.gavinklfong.insurance.quotation.apiclients.QuotationSigner;
+import space.gavinklfong.insurance.quotation.models.Quotation;
+import space.gavinklfong.insurance.quotation.repositories.InMemoryQuotationCacheNode;
+import space.gavinklfong.insurance.quotation.repositories.QuotationCacheNode;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class SharedQuotationCacheTests {
+
+    private static final String SECRET = "test-secret";
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-02-28T10:00:00Z"), ZoneId.of("UTC"));
+
+    // the local partitions of three instances, wired to each other in the same JVM
+    private final InMemoryQuotationCacheNode nodeA = new InMemoryQuotationCacheNode("node-a", 1000, clock);
+    private final InMemoryQuotationCacheNode nodeB = new InMemoryQuotationCacheNode("node-b", 1000, clock);
+    private final InMemoryQuotationCacheNode nodeC = new InMemoryQuotationCacheNode("node-c", 1000, clock);
+
+    private final SharedQuotationCache instanceA = instance(nodeA, nodeB, nodeC);
+    private final SharedQuotationCache instanceB = instance(nodeB, nodeA, nodeC);
+
+    @Test
+    void givenQuotationSavedOnOneInstance_whenGetOnAnother_thenServedFromOwnerNode() {
+        List<Quotation> quotations = IntStream.range(0, 30)
+                .mapToObj(i -> quotation())
+                .collect(Collectors.toList());
+        quotations.forEach(instanceA::put);
+
+        // every quotation is on exactly its owner's partition
+        assertEquals(quotations.size(), nodeA.size() + nodeB.size() + nodeC.size());
+        assertTrue(nodeA.size() > 0 && nodeB.size() > 0 && nodeC.size() > 0);
+
+        for (Quotation quotation : quotations) {
+            assertEquals(instanceA.ownerOf(quotation.getQuotationCode()), instanceB.ownerOf(quotation.getQuotationCode()));
+            Optional<Quotation> found = instanceB.get(quotation.getQuotationCode(), code -> {
+                throw new AssertionError("Quotation should be served from the cache: " + code);
+            });
+            assertEquals(Optional.of(quotation), found);
+        }
+    }
+
+    @Test
+    void givenMiss_whenGet_thenLoadAndCacheOnOwner() {
+        Quotation quotation = quotation();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(Optional.of(quotation), instanceA.get(quotation.getQuotationCode(), code -> {
+            loads.incrementAndGet();
+            return Optional.of(quotation);
+        }));
+        assertEquals(Optional.of(quotation), instanceB.get(quotation.getQuotationCode(), code -> {
+            loads.incrementAndGet();
+            return Optional.of(quotation);
+        }));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void givenConcurrentMisses_whenGet_thenLoadOnce() throws Exception {
+        Quotation quotation = quotation();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Optional<Quotation>> first = CompletableFuture.supplyAsync(() ->
+                instanceA.get(quotation.getQuotationCode(), code -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return Optional.of(quotation);
+                }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Optional<Quotation>> second = CompletableFuture.supplyAsync(() ->
+                instanceA.get(quotation.getQuotationCode(), code -> {
+                    loads.incrementAndGet();
+                    return Optional.of(quotation);
+                }));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(Optional.of(quotation), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Optional.of(quotation), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void givenSecret_whenCheckPeerSecret_thenOnlySameSecretAccepted() {
+        assertTrue(instanceA.isPeerSecret(SECRET));
+        assertFalse(instanceA.isPeerSecret("other-secret"));
+        assertFalse(instanceA.isPeerSecret(null));
+    }
+
+    @Test
+    void givenSignature_whenCheckSignedByPeer_thenOnlySignatureWithSameSecretAccepted() {
+        Quotation quotation = quotation();
+
+        assertTrue(instanceA.isSignedByPeer(quotation, new QuotationSigner(SECRET).sign(quotation)));
+        assertFalse(instanceA.isSignedByPeer(quotation, new QuotationSigner("other-secret").sign(quotation)));
+        assertFalse(instanceA.isSignedByPeer(quotation, null));
+    }
+
+    @Test
+    void givenNoSecret_whenEnabled_thenReject() {
+        assertThrows(IllegalArgumentException.class, () -> new SharedQuotationCache(true, nodeA, List.of(nodeB), 160, 1, "", new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void givenNodeAdded_whenLookUpOwners_thenOnlyItsShareMoves() {
+        List<QuotationCacheNode> threeNodes = List.of(nodeA, nodeB, nodeC);
+        List<QuotationCacheNode> fourNodes = List.of(nodeA, nodeB, nodeC, new InMemoryQuotationCacheNode("node-d", 1000, clock));
+        ConsistentHashRing<QuotationCacheNode> before = new ConsistentHashRing<>(threeNodes, QuotationCacheNode::getId, 160);
+        ConsistentHashRing<QuotationCacheNode> after = new ConsistentHashRing<>(fourNodes, QuotationCacheNode::getId, 160);
+
+        int keys = 10_000;
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            String quotationCode = UUID.randomUUID().toString();
+            QuotationCacheNode owner = after.nodeFor(quotationCode);
+            if (owner != before.nodeFor(quotationCode)) {
+                assertEquals("node-d", owner.getId());
+                moved++;
+            }
+        }
+        // about a quarter of the keys move to the new node
+        assertTrue(moved > keys * 0.18 && moved < keys * 0.32, "moved " + moved);
+    }
+
+    private SharedQuotationCache instance(InMemoryQuotationCacheNode localNode, QuotationCacheNode... peers) {
+        return new SharedQuotationCache(true, localNode, List.of(peers), 160, 1, SECRET, new SimpleMeterRegistry());
+    }
+
+    private Quotation quotation() {
+        return Quotation.builder()
+                .quotationCode(UUID.randomUUID().toString())
+                .customerId(1L)
+                .productCode("CAR001-01")
+                .amount(1500.0)
+                .expiryTime(LocalDateTime.now(clock).plusMinutes(60))
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
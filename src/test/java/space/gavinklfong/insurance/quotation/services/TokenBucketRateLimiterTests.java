@@ -0,0 +1,69 @@
+package space.gavinklfong.insurance.quotation.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("UnitTest")
+public class TokenBucketRateLimiterTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    // 2 permits per second with a burst of 3, at most 2 keys idle after 10 seconds
+    private final TokenBucketRateLimiter<String> rateLimiter = new TokenBucketRateLimiter<>(2, 3, 2, 10, nanoTime::get);
+
+    @Test
+    void givenBurstUsedUp_whenTryAcquire_thenRejectUntilNextToken() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("A"));
+        }
+
+        assertEquals(SECOND / 2, rateLimiter.tryAcquire("A"));
+        assertEquals(0, rateLimiter.tryAcquire("B"));
+
+        nanoTime.addAndGet(SECOND / 2);
+        assertEquals(0, rateLimiter.tryAcquire("A"));
+        assertTrue(rateLimiter.tryAcquire("A") > 0);
+    }
+
+    @Test
+    void givenTokenReleased_whenTryAcquire_thenTakeReleasedToken() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("A"));
+        }
+
+        rateLimiter.release("A");
+
+        assertEquals(0, rateLimiter.tryAcquire("A"));
+        assertTrue(rateLimiter.tryAcquire("A") > 0);
+    }
+
+    @Test
+    void givenTableFull_whenTryAcquireNewKey_thenShareOverflowBucket() {
+        rateLimiter.tryAcquire("A");
+        rateLimiter.tryAcquire("B");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("C" + i));
+        }
+        assertTrue(rateLimiter.tryAcquire("D") > 0);
+        assertEquals(2, rateLimiter.size());
+    }
+
+    @Test
+    void givenIdleKeys_whenTableFull_thenPurgeIdleKeys() {
+        rateLimiter.tryAcquire("A");
+        rateLimiter.tryAcquire("B");
+
+        nanoTime.addAndGet(11 * SECOND);
+
+        assertEquals(0, rateLimiter.tryAcquire("C"));
+        assertEquals(1, rateLimiter.size());
+    }
+}